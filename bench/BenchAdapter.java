@@ -0,0 +1,14 @@
+import java.util.Map;
+
+// IoTAdapter.sendMessage con cada protocolo.
+public class BenchAdapter {
+    public static void main(String[] args) {
+        Map<String, Object> mensaje = Map.of("device", "termostato_sala", "temperature", 22.5, "humidity", 45);
+        IoTAdapter mqtt = new IoTAdapter(new MQTTProtocol(), "mqtt");
+        IoTAdapter coap = new IoTAdapter(new CoAPProtocol(), "coap");
+        IoTAdapter http = new IoTAdapter(new HTTPProtocol(), "http");
+        Medidor.medir("IoTAdapter.sendMessage (mqtt)", () -> mqtt.sendMessage("home/living_room/temperature", mensaje));
+        Medidor.medir("IoTAdapter.sendMessage (coap)", () -> coap.sendMessage("home/living_room/temperature", mensaje));
+        Medidor.medir("IoTAdapter.sendMessage (http)", () -> http.sendMessage("home/living_room/temperature", mensaje));
+    }
+}
@@ -0,0 +1,16 @@
+// ComputerDirector.constructFullComputer con la receta ya compilada.
+public class BenchBuilder {
+    public static void main(String[] args) {
+        GamingComputerBuilder builder = new GamingComputerBuilder();
+        ComputerDirector director = new ComputerDirector(builder);
+        Medidor.medir("constructFullComputer (nueva)", () -> {
+            director.constructFullComputer();
+            return builder.getComputer();
+        });
+        builder.setReuseComputer(true);
+        Medidor.medir("constructFullComputer (reutilizada)", () -> {
+            director.constructFullComputer();
+            return builder.getComputer();
+        });
+    }
+}
@@ -0,0 +1,17 @@
+// Handler.handle: cadena secuencial de cinco validaciones sin eventos por consola.
+public class BenchCadena {
+    public static void main(String[] args) {
+        Handler cadena = new ChainBuilder()
+            .sink(NoOpEventSink.INSTANCE)
+            .then(new StockValidationHandler())
+            .then(new PaymentValidationHandler())
+            .then(new ShippingValidationHandler())
+            .then(new DiscountValidationHandler())
+            .then(new ApprovalHandler())
+            .build();
+        Medidor.medir("Handler.handle (aprobada)",
+            () -> cadena.handle(new OrderRequest(true, "credit_card", "123 Main St", true, 100.0)));
+        Medidor.medir("Handler.handle (rechazada en stock)",
+            () -> cadena.handle(new OrderRequest(false, "paypal", "789 Oak St", true, 150.0)));
+    }
+}
@@ -0,0 +1,14 @@
+// FontFactory.getFont: aciertos sobre un conjunto pequeño de fuentes ya creadas.
+public class BenchFlyweight {
+    private static final String[] FAMILIAS = {"Arial", "Times New Roman", "Courier New", "Verdana"};
+    private static final String[] ESTILOS = {"normal", "negrita", "cursiva"};
+
+    private static int siguiente;
+
+    public static void main(String[] args) {
+        Medidor.medir("FontFactory.getFont (aciertos)", () -> {
+            int i = siguiente++;
+            return FontFactory.getFont(FAMILIAS[i & 3], 10 + (i & 7), ESTILOS[i % 3], "negro");
+        });
+    }
+}
@@ -0,0 +1,24 @@
+import java.util.Iterator;
+
+// IteradorProyecto: recorrido completo de un proyecto con tres categorías en memoria.
+public class BenchIterador {
+    private static final int TAREAS_POR_CATEGORIA = 10_000;
+
+    public static void main(String[] args) {
+        Proyecto proyecto = new Proyecto("Bench");
+        for (String nombre : new String[] {"Pendientes", "En Progreso", "Completadas"}) {
+            CategoriaTareas categoria = new CategoriaTareas(nombre);
+            proyecto.agregarCategoria(categoria);
+            for (int i = 0; i < TAREAS_POR_CATEGORIA; i++) {
+                categoria.agregarTarea(new Tarea("Tarea " + (i % 100), "Descripción de la tarea " + i));
+            }
+        }
+        Medidor.medir("IteradorProyecto (30000 tareas)", () -> {
+            int vistas = 0;
+            for (Iterator<Tarea> tareas = proyecto.iterator(); tareas.hasNext(); tareas.next()) {
+                vistas++;
+            }
+            return vistas;
+        });
+    }
+}
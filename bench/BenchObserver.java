@@ -0,0 +1,33 @@
+import java.util.List;
+
+// Serie.notifyObservers: reparto síncrono de un episodio a 10000 observadores.
+public class BenchObserver {
+    private static final int OBSERVADORES = 10_000;
+
+    private static final class Contador implements Observer {
+        int recibidos;
+
+        @Override
+        public void update(Serie serie, String episode) {
+            recibidos++;
+        }
+
+        @Override
+        public void updateBatch(Serie serie, List<String> episodes) {
+            recibidos += episodes.size();
+        }
+    }
+
+    public static void main(String[] args) {
+        Serie serie = new Serie("Bench");
+        Contador[] contadores = new Contador[OBSERVADORES];
+        for (int i = 0; i < OBSERVADORES; i++) {
+            contadores[i] = new Contador();
+            serie.addObserver(contadores[i]);
+        }
+        Medidor.medir("Serie.notifyObservers (10000 observadores)", () -> {
+            serie.notifyObservers("Episodio");
+            return contadores[OBSERVADORES - 1].recibidos;
+        });
+    }
+}
@@ -0,0 +1,10 @@
+// IAConfig.clone: copia profunda de un prototipo con parámetros y patrones.
+public class BenchPrototype {
+    public static void main(String[] args) {
+        NPCEnemigo base = new NPCEnemigo("Enemigo Base", 5, "equilibrado", "desarmado", 1.0);
+        base.añadirParametro("vision_distancia", 100);
+        base.añadirParametro("tiempo_reaccion", 0.5);
+        base.añadirPatronMovimiento("patrulla");
+        Medidor.medir("IAConfig.clone (NPCEnemigo)", base::clone);
+    }
+}
@@ -0,0 +1,10 @@
+// ProxyContenido.reproducir con acceso concedido (plan premium, sin límite de visitas).
+public class BenchProxy {
+    public static void main(String[] args) {
+        ProxyContenido pelicula = new ProxyContenido("El Código Enigma", 114, "4K", "premium");
+        Medidor.medir("ProxyContenido.reproducir (premium)", () -> {
+            pelicula.reproducir();
+            return pelicula;
+        });
+    }
+}
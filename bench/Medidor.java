@@ -0,0 +1,64 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+// Arnés mínimo de medición: calentamiento, iteraciones de duración fija y media de
+// operaciones por segundo. Los demos imprimen en sus caminos calientes, así que la
+// salida estándar se descarta mientras se mide.
+final class Medidor {
+    private static final int CALENTAMIENTO = Integer.getInteger("calentamiento", 3);
+    private static final int ITERACIONES = Integer.getInteger("iteraciones", 5);
+    private static final long DURACION_NANOS = Long.getLong("duracionMs", 500) * 1_000_000L;
+    private static final int LOTE = 64;
+
+    // Evita que el JIT descarte el resultado de la operación medida.
+    private static int sumidero;
+
+    private Medidor() {
+    }
+
+    static void medir(String nombre, Supplier<?> operacion) {
+        PrintStream salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        double[] tasas = new double[ITERACIONES];
+        try {
+            for (int i = 0; i < CALENTAMIENTO; i++) {
+                iteracion(operacion);
+            }
+            for (int i = 0; i < ITERACIONES; i++) {
+                tasas[i] = iteracion(operacion);
+            }
+        } finally {
+            System.setOut(salida);
+        }
+        double media = 0;
+        for (double tasa : tasas) {
+            media += tasa;
+        }
+        media /= tasas.length;
+        double varianza = 0;
+        for (double tasa : tasas) {
+            varianza += (tasa - media) * (tasa - media);
+        }
+        double desviacion = tasas.length > 1 ? Math.sqrt(varianza / (tasas.length - 1)) : 0;
+        System.out.println(String.format(Locale.ROOT, "%-40s %14.1f ops/s ± %5.1f%%  %10.1f ns/op",
+            nombre, media, 100 * desviacion / media, 1e9 / media));
+    }
+
+    private static double iteracion(Supplier<?> operacion) {
+        long operaciones = 0;
+        long inicio = System.nanoTime();
+        long transcurrido;
+        do {
+            for (int i = 0; i < LOTE; i++) {
+                if (operacion.get() == Medidor.class) {
+                    sumidero++;
+                }
+            }
+            operaciones += LOTE;
+            transcurrido = System.nanoTime() - inicio;
+        } while (transcurrido < DURACION_NANOS);
+        return operaciones * 1e9 / transcurrido;
+    }
+}
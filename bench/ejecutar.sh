@@ -0,0 +1,40 @@
+#!/bin/sh
+# Compila cada demo por separado con el nombre de su clase pública, junto con su
+# benchmark y Medidor, y lo ejecuta. Los demos comparten el paquete por defecto y
+# repiten nombres de clases, por eso no se compilan juntos.
+#
+#   bench/ejecutar.sh                 todos los benchmarks
+#   bench/ejecutar.sh BenchCadena     solo uno
+#
+# JAVA_OPTS admite -Dcalentamiento=N, -Diteraciones=N y -DduracionMs=N.
+set -e
+# Algunos demos tienen clases con tildes; javac necesita una configuración regional UTF-8
+# para escribir esos .class.
+export LC_ALL=${LC_ALL:-C.UTF-8}
+raiz=$(cd "$(dirname "$0")/.." && pwd)
+trabajo=$(mktemp -d)
+trap 'rm -rf "$trabajo"' EXIT
+
+ejecutar() {
+    demo=$raiz/$1
+    bench=$2
+    if [ -n "$solo" ] && [ "$solo" != "$bench" ]; then
+        return
+    fi
+    clase=$(sed -n 's/^public class \([A-Za-z0-9_]*\).*/\1/p' "$demo" | head -n 1)
+    mkdir -p "$trabajo/$bench/src" "$trabajo/$bench/clases"
+    cp "$demo" "$trabajo/$bench/src/$clase.java"
+    cp "$raiz/bench/Medidor.java" "$raiz/bench/$bench.java" "$trabajo/$bench/src/"
+    javac -encoding UTF-8 -nowarn -d "$trabajo/$bench/clases" "$trabajo/$bench/src/"*.java
+    java -Dfile.encoding=UTF-8 $JAVA_OPTS -cp "$trabajo/$bench/clases" "$bench"
+}
+
+solo=$1
+ejecutar comportamiento/chain_responsability.java BenchCadena
+ejecutar comportamiento/iterator.java BenchIterador
+ejecutar comportamiento/observer.java BenchObserver
+ejecutar estructurales/flyweight.java BenchFlyweight
+ejecutar estructurales/adapter.java BenchAdapter
+ejecutar estructurales/proxy.java BenchProxy
+ejecutar creacionales/prototype.java BenchPrototype
+ejecutar creacionales/builder.java BenchBuilder
@@ -1,85 +1,920 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+enum PaymentMethod {
+    CREDIT_CARD("credit_card"),
+    PAYPAL("paypal"),
+    BANK_TRANSFER("bank_transfer"),
+    UNKNOWN(null);
+
+    private final String code;
+
+    PaymentMethod(String code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public static PaymentMethod fromCode(String code) {
+        if (code != null) {
+            for (PaymentMethod method : values()) {
+                if (code.equals(method.code)) {
+                    return method;
+                }
+            }
+        }
+        return UNKNOWN;
+    }
+}
+
+class OrderRequest {
+    private final boolean inStock;
+    private final PaymentMethod paymentMethod;
+    private final String paymentCode;
+    private final String shippingAddress;
+    private final boolean premiumCustomer;
+    private double totalPrice;
+
+    public OrderRequest(boolean inStock, String paymentCode, String shippingAddress, boolean premiumCustomer, double totalPrice) {
+        this.inStock = inStock;
+        this.paymentMethod = PaymentMethod.fromCode(paymentCode);
+        this.paymentCode = paymentMethod == PaymentMethod.UNKNOWN ? paymentCode : paymentMethod.getCode();
+        this.shippingAddress = shippingAddress;
+        this.premiumCustomer = premiumCustomer;
+        this.totalPrice = totalPrice;
+    }
+
+    public static OrderRequest fromMap(Map<String, Object> request) {
+        Object totalPrice = request.get("total_price");
+        return new OrderRequest(
+            (Boolean) request.getOrDefault("in_stock", false),
+            (String) request.get("payment_method"),
+            (String) request.get("shipping_address"),
+            (Boolean) request.getOrDefault("is_premium_customer", false),
+            totalPrice == null ? 0.0 : ((Number) totalPrice).doubleValue()
+        );
+    }
+
+    public boolean isInStock() {
+        return inStock;
+    }
+
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public String getPaymentCode() {
+        return paymentCode;
+    }
+
+    public String getShippingAddress() {
+        return shippingAddress;
+    }
+
+    public boolean isPremiumCustomer() {
+        return premiumCustomer;
+    }
+
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+}
+
+// Resultado inmutable de la cadena. Los rechazos se crean una sola vez y se
+// reutilizan; el mensaje de aprobación se genera solo cuando alguien lo renderiza.
+class ValidationResult {
+    public static final ValidationResult APPROVED = new ValidationResult("APPROVED", null);
+
+    private final String code;
+    private final String message;
+
+    private ValidationResult(String code, String message) {
+        this.code = code;
+        this.message = message;
+    }
+
+    public static ValidationResult rejection(String code, String message) {
+        return new ValidationResult(code, message);
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public boolean isApproved() {
+        return this == APPROVED;
+    }
+
+    public String render(OrderRequest request) {
+        if (!isApproved()) {
+            return message;
+        }
+        return String.format("Solicitud aprobada. Precio final: $%.2f", request.getTotalPrice());
+    }
+
+    @Override
+    public String toString() {
+        return message != null ? message : code;
+    }
+}
+
+interface ValidationEventSink {
+    void onEvent(Handler handler, OrderRequest request, ValidationResult rejection, long elapsedNanos);
+
+    void onBatch(Handler handler, int validated, int passed, long elapsedNanos);
+}
+
+class ConsoleEventSink implements ValidationEventSink {
+    public static final ConsoleEventSink INSTANCE = new ConsoleEventSink();
+
+    @Override
+    public void onEvent(Handler handler, OrderRequest request, ValidationResult rejection, long elapsedNanos) {
+        if (rejection == null) {
+            System.out.println(handler.successMessage(request));
+        }
+    }
+
+    @Override
+    public void onBatch(Handler handler, int validated, int passed, long elapsedNanos) {
+        System.out.println(handler.getName() + ": " + passed + " de " + validated + " solicitudes validadas.");
+    }
+}
+
+class NoOpEventSink implements ValidationEventSink {
+    public static final NoOpEventSink INSTANCE = new NoOpEventSink();
+
+    @Override
+    public void onEvent(Handler handler, OrderRequest request, ValidationResult rejection, long elapsedNanos) {
+    }
+
+    @Override
+    public void onBatch(Handler handler, int validated, int passed, long elapsedNanos) {
+    }
+}
+
+// Cola acotada multi-productor sin bloqueos (secuencia por posición) que un hilo
+// de fondo vacía hacia otro sink; si la cola está llena el evento se descarta.
+class AsyncEventSink implements ValidationEventSink, AutoCloseable {
+    private static final class Slot {
+        volatile long sequence;
+        Handler handler;
+        OrderRequest request;
+        ValidationResult rejection;
+        long elapsedNanos;
+        boolean batch;
+        int validated;
+        int passed;
+    }
+
+    private final ValidationEventSink delegate;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread drainer;
+    private long head;
+    private volatile boolean running = true;
+
+    public AsyncEventSink(ValidationEventSink delegate, int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("La capacidad debe ser una potencia de dos: " + capacity);
+        }
+        this.delegate = delegate;
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+        this.drainer = new Thread(this::drain, "validation-event-sink");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    @Override
+    public void onEvent(Handler handler, OrderRequest request, ValidationResult rejection, long elapsedNanos) {
+        Slot slot = claim();
+        if (slot == null) {
+            return;
+        }
+        slot.handler = handler;
+        slot.request = request;
+        slot.rejection = rejection;
+        slot.elapsedNanos = elapsedNanos;
+        slot.batch = false;
+        publish(slot);
+    }
+
+    @Override
+    public void onBatch(Handler handler, int validated, int passed, long elapsedNanos) {
+        Slot slot = claim();
+        if (slot == null) {
+            return;
+        }
+        slot.handler = handler;
+        slot.request = null;
+        slot.rejection = null;
+        slot.elapsedNanos = elapsedNanos;
+        slot.batch = true;
+        slot.validated = validated;
+        slot.passed = passed;
+        publish(slot);
+    }
+
+    public long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    private Slot claim() {
+        long position = tail.get();
+        while (true) {
+            Slot slot = slots[(int) (position & mask)];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return slot;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                dropped.increment();
+                return null;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void publish(Slot slot) {
+        slot.sequence = slot.sequence + 1;
+    }
+
+    private boolean pollOne() {
+        Slot slot = slots[(int) (head & mask)];
+        if (slot.sequence != head + 1) {
+            return false;
+        }
+        if (slot.batch) {
+            delegate.onBatch(slot.handler, slot.validated, slot.passed, slot.elapsedNanos);
+        } else {
+            delegate.onEvent(slot.handler, slot.request, slot.rejection, slot.elapsedNanos);
+        }
+        slot.handler = null;
+        slot.request = null;
+        slot.rejection = null;
+        slot.sequence = head + slots.length;
+        head++;
+        return true;
+    }
+
+    private void drain() {
+        while (running) {
+            if (!pollOne()) {
+                LockSupport.parkNanos(100_000L);
+            }
+        }
+        while (pollOne()) {
+            // vacía lo que quedó pendiente al cerrar
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+// Histograma log-lineal (8 sub-buckets por potencia de dos, ~12% de error) con
+// contadores LongAdder para que varios hilos registren sin competir por una línea de caché.
+class HandlerMetrics {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    public HandlerMetrics() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long elapsedNanos, boolean accepted) {
+        buckets[bucketIndex(elapsedNanos)].increment();
+        totalNanos.add(elapsedNanos);
+        if (accepted) {
+            passed.increment();
+        } else {
+            rejected.increment();
+        }
+    }
+
+    public void recordBatch(long elapsedNanos, int validated, int accepted) {
+        if (validated == 0) {
+            return;
+        }
+        buckets[bucketIndex(elapsedNanos / validated)].add(validated);
+        totalNanos.add(elapsedNanos);
+        passed.add(accepted);
+        rejected.add(validated - accepted);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        return new Snapshot(passed.sum(), rejected.sum(),
+            count == 0 ? 0.0 : (double) totalNanos.sum() / count,
+            percentile(counts, count, 0.50), percentile(counts, count, 0.90),
+            percentile(counts, count, 0.99), percentile(counts, count, 1.0));
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return value < 0 ? 0 : (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private static long percentile(long[] counts, long count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(counts.length - 1);
+    }
+
+    static class Snapshot {
+        private final long passed;
+        private final long rejected;
+        private final double meanNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        Snapshot(long passed, long rejected, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+            this.passed = passed;
+            this.rejected = rejected;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getPassed() {
+            return passed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public double getMeanNanos() {
+            return meanNanos;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("aprobadas=%d, rechazadas=%d, media=%.0fns, p50=%dns, p90=%dns, p99=%dns, max=%dns",
+                passed, rejected, meanNanos, p50Nanos, p90Nanos, p99Nanos, maxNanos);
+        }
+    }
+}
+
+// Expone las métricas de un manejador por JMX sin requerir una interfaz MBean pública.
+class HandlerMetricsMBean implements DynamicMBean {
+    private static final String[] ATTRIBUTES = {"Passed", "Rejected", "MeanNanos", "P50Nanos", "P90Nanos", "P99Nanos", "MaxNanos"};
+
+    private final HandlerMetrics metrics;
+
+    HandlerMetricsMBean(HandlerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        HandlerMetrics.Snapshot snapshot = metrics.snapshot();
+        switch (attribute) {
+            case "Passed": return snapshot.getPassed();
+            case "Rejected": return snapshot.getRejected();
+            case "MeanNanos": return snapshot.getMeanNanos();
+            case "P50Nanos": return snapshot.getP50Nanos();
+            case "P90Nanos": return snapshot.getP90Nanos();
+            case "P99Nanos": return snapshot.getP99Nanos();
+            case "MaxNanos": return snapshot.getMaxNanos();
+            default: throw new AttributeNotFoundException(attribute);
+        }
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Atributo de solo lectura: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // los atributos desconocidos se omiten, como indica DynamicMBean
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        MBeanAttributeInfo[] infos = new MBeanAttributeInfo[ATTRIBUTES.length];
+        for (int i = 0; i < ATTRIBUTES.length; i++) {
+            String type = "MeanNanos".equals(ATTRIBUTES[i]) ? "double" : "long";
+            infos[i] = new MBeanAttributeInfo(ATTRIBUTES[i], type, ATTRIBUTES[i], true, false, false);
+        }
+        return new MBeanInfo(HandlerMetricsMBean.class.getName(), "Métricas del manejador", infos, null, null, null);
+    }
+}
+
+// Recorre la cadena y también los manejadores de cada grupo paralelo; estos aparecen
+// con el nombre del grupo delante (ParallelValidationHandler.StockValidationHandler).
+// Si un nombre se repite, el segundo y siguientes llevan su ordinal
+// (StockValidationHandler#2), así ninguno pisa las métricas ni el MBean de otro.
+class ChainMetrics {
+    public static Map<String, HandlerMetrics.Snapshot> snapshot(Handler chain) {
+        Map<String, HandlerMetrics> metrics = new LinkedHashMap<>();
+        collectMetrics(chain, "", metrics);
+        Map<String, HandlerMetrics.Snapshot> snapshots = new LinkedHashMap<>();
+        for (Map.Entry<String, HandlerMetrics> entry : metrics.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshots;
+    }
+
+    public static void registerMBeans(Handler chain, String chainName) throws JMException {
+        Map<String, HandlerMetrics> metrics = new LinkedHashMap<>();
+        collectMetrics(chain, "", metrics);
+        for (Map.Entry<String, HandlerMetrics> entry : metrics.entrySet()) {
+            ObjectName name = new ObjectName("chain:type=" + ObjectName.quote(chainName) + ",handler=" + entry.getKey());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new HandlerMetricsMBean(entry.getValue()), name);
+        }
+    }
+
+    private static void collectMetrics(Handler chain, String prefix, Map<String, HandlerMetrics> metrics) {
+        for (Handler handler = chain; handler != null; handler = handler.nextHandler) {
+            String name = uniqueName(prefix + handler.getName(), metrics);
+            metrics.put(name, handler.getMetrics());
+            for (Handler member : handler.members()) {
+                collectMetrics(member, name + ".", metrics);
+            }
+        }
+    }
+
+    private static String uniqueName(String name, Map<String, HandlerMetrics> metrics) {
+        String unique = name;
+        for (int ordinal = 2; metrics.containsKey(unique); ordinal++) {
+            unique = name + "#" + ordinal;
+        }
+        return unique;
+    }
+}
 
 abstract class Handler {
     protected Handler nextHandler;
+    protected ValidationEventSink sink = ConsoleEventSink.INSTANCE;
+    private final HandlerMetrics metrics = new HandlerMetrics();
 
-    public void setNext(Handler nextHandler) {
+    public Handler setNext(Handler nextHandler) {
         this.nextHandler = nextHandler;
+        return nextHandler;
     }
 
-    public abstract String handle(Map<String, Object> request);
-}
+    public void setSink(ValidationEventSink sink) {
+        this.sink = sink;
+    }
 
-class StockValidationHandler extends Handler {
-    @Override
-    public String handle(Map<String, Object> request) {
-        Boolean inStock = (Boolean) request.getOrDefault("in_stock", false);
-        if (!inStock) {
-            return "El producto no está en stock. Solicitud rechazada.";
+    public HandlerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    // Manejadores que este ejecuta internamente (los de un grupo paralelo).
+    protected Handler[] members() {
+        return new Handler[0];
+    }
+
+    // validate() con su tiempo registrado en las métricas; lo usa un grupo paralelo
+    // para cada miembro, cuyos eventos ya emite el propio grupo.
+    final ValidationResult validateRecorded(OrderRequest request) {
+        long start = System.nanoTime();
+        ValidationResult rejection = validate(request);
+        metrics.record(System.nanoTime() - start, rejection == null);
+        return rejection;
+    }
+
+    protected abstract ValidationResult validate(OrderRequest request);
+
+    protected abstract String successMessage(OrderRequest request);
+
+    protected ValidationResult result(OrderRequest request) {
+        return null;
+    }
+
+    public ValidationResult handle(OrderRequest request) {
+        long start = System.nanoTime();
+        ValidationResult rejection = validate(request);
+        long elapsed = System.nanoTime() - start;
+        metrics.record(elapsed, rejection == null);
+        sink.onEvent(this, request, rejection, elapsed);
+        if (rejection != null) {
+            return rejection;
         }
-        System.out.println("Validación de stock exitosa.");
         if (nextHandler != null) {
             return nextHandler.handle(request);
         }
+        return result(request);
+    }
+
+    // Adaptador para los llamadores que todavía construyen la solicitud como Map
+    public String handle(Map<String, Object> request) {
+        OrderRequest orderRequest = OrderRequest.fromMap(request);
+        ValidationResult result = handle(orderRequest);
+        return result == null ? null : result.render(orderRequest);
+    }
+
+    // Ejecuta cada etapa sobre todo el lote antes de pasar a la siguiente,
+    // procesando solo las solicitudes que siguen vivas.
+    public ValidationResult[] handleBatch(OrderRequest[] requests) {
+        ValidationResult[] results = new ValidationResult[requests.length];
+        int[] pending = new int[requests.length];
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = i;
+        }
+        int count = pending.length;
+        Handler handler = this;
+        while (count > 0) {
+            count = handler.validateBatch(requests, pending, count, results);
+            if (handler.nextHandler == null) {
+                for (int i = 0; i < count; i++) {
+                    results[pending[i]] = handler.result(requests[pending[i]]);
+                }
+                break;
+            }
+            handler = handler.nextHandler;
+        }
+        return results;
+    }
+
+    protected int validateBatch(OrderRequest[] requests, int[] pending, int count, ValidationResult[] results) {
+        long start = System.nanoTime();
+        int passed = 0;
+        for (int i = 0; i < count; i++) {
+            int index = pending[i];
+            ValidationResult rejection = validate(requests[index]);
+            if (rejection == null) {
+                pending[passed++] = index;
+            } else {
+                results[index] = rejection;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        metrics.recordBatch(elapsed, count, passed);
+        sink.onBatch(this, count, passed, elapsed);
+        return passed;
+    }
+}
+
+class StockValidationHandler extends Handler {
+    private static final ValidationResult OUT_OF_STOCK =
+        ValidationResult.rejection("OUT_OF_STOCK", "El producto no está en stock. Solicitud rechazada.");
+
+    @Override
+    protected ValidationResult validate(OrderRequest request) {
+        if (!request.isInStock()) {
+            return OUT_OF_STOCK;
+        }
         return null;
     }
+
+    @Override
+    protected String successMessage(OrderRequest request) {
+        return "Validación de stock exitosa.";
+    }
 }
 
 class PaymentValidationHandler extends Handler {
+    private static final int MAX_CACHED_REJECTIONS = 256;
+    private static final ValidationResult MISSING_METHOD = invalidMethod(null);
+    private static final Map<String, ValidationResult> REJECTIONS = new ConcurrentHashMap<>();
+    private static final Map<PaymentMethod, String> SUCCESS_MESSAGES = new EnumMap<>(PaymentMethod.class);
+
+    static {
+        for (PaymentMethod method : PaymentMethod.values()) {
+            SUCCESS_MESSAGES.put(method, "Validación de pago (" + method.getCode() + ") exitosa.");
+        }
+    }
+
+    private static ValidationResult invalidMethod(String code) {
+        return ValidationResult.rejection("INVALID_PAYMENT_METHOD", "Método de pago '" + code + "' no válido. Solicitud rechazada.");
+    }
+
     @Override
-    public String handle(Map<String, Object> request) {
-        String paymentMethod = (String) request.get("payment_method");
-        if (!"credit_card".equals(paymentMethod) && !"paypal".equals(paymentMethod) && !"bank_transfer".equals(paymentMethod)) {
-            return "Método de pago '" + paymentMethod + "' no válido. Solicitud rechazada.";
+    protected ValidationResult validate(OrderRequest request) {
+        if (request.getPaymentMethod() != PaymentMethod.UNKNOWN) {
+            return null;
         }
-        System.out.println("Validación de pago (" + paymentMethod + ") exitosa.");
-        if (nextHandler != null) {
-            return nextHandler.handle(request);
+        String code = request.getPaymentCode();
+        if (code == null) {
+            return MISSING_METHOD;
         }
-        return null;
+        ValidationResult rejection = REJECTIONS.get(code);
+        if (rejection == null) {
+            rejection = invalidMethod(code);
+            if (REJECTIONS.size() < MAX_CACHED_REJECTIONS) {
+                REJECTIONS.putIfAbsent(code, rejection);
+            }
+        }
+        return rejection;
+    }
+
+    @Override
+    protected String successMessage(OrderRequest request) {
+        return SUCCESS_MESSAGES.get(request.getPaymentMethod());
     }
 }
 
 class ShippingValidationHandler extends Handler {
+    private static final ValidationResult INVALID_ADDRESS =
+        ValidationResult.rejection("INVALID_ADDRESS", "Dirección de envío no válida. Solicitud rechazada.");
+
     @Override
-    public String handle(Map<String, Object> request) {
-        String shippingAddress = (String) request.get("shipping_address");
-        if (shippingAddress == null || shippingAddress.trim().isEmpty()) {
-            return "Dirección de envío no válida. Solicitud rechazada.";
-        }
-        System.out.println("Validación de dirección de envío exitosa.");
-        if (nextHandler != null) {
-            return nextHandler.handle(request);
+    protected ValidationResult validate(OrderRequest request) {
+        String shippingAddress = request.getShippingAddress();
+        if (shippingAddress == null || shippingAddress.isBlank()) {
+            return INVALID_ADDRESS;
         }
         return null;
     }
+
+    @Override
+    protected String successMessage(OrderRequest request) {
+        return "Validación de dirección de envío exitosa.";
+    }
 }
 
 class DiscountValidationHandler extends Handler {
     @Override
-    public String handle(Map<String, Object> request) {
-        Boolean isPremiumCustomer = (Boolean) request.getOrDefault("is_premium_customer", false);
-        Double totalPrice = (Double) request.get("total_price");
-        if (isPremiumCustomer) {
-            System.out.println("Descuento aplicado (10%) para cliente premium.");
-            totalPrice *= 0.9; 
-            request.put("total_price", totalPrice);
-        } else {
-            System.out.println("Cliente no elegible para descuentos.");
-        }
-        if (nextHandler != null) {
-            return nextHandler.handle(request);
+    protected ValidationResult validate(OrderRequest request) {
+        if (request.isPremiumCustomer()) {
+            request.setTotalPrice(request.getTotalPrice() * 0.9);
         }
         return null;
     }
+
+    @Override
+    protected String successMessage(OrderRequest request) {
+        if (request.isPremiumCustomer()) {
+            return "Descuento aplicado (10%) para cliente premium.";
+        }
+        return "Cliente no elegible para descuentos.";
+    }
 }
 
 class ApprovalHandler extends Handler {
     @Override
-    public String handle(Map<String, Object> request) {
-        System.out.println("Todas las validaciones pasaron. Solicitud aprobada.");
-        Double totalPrice = (Double) request.get("total_price");
-        return String.format("Solicitud aprobada. Precio final: $%.2f", totalPrice);
+    protected ValidationResult validate(OrderRequest request) {
+        return null;
+    }
+
+    @Override
+    protected String successMessage(OrderRequest request) {
+        return "Todas las validaciones pasaron. Solicitud aprobada.";
+    }
+
+    @Override
+    protected ValidationResult result(OrderRequest request) {
+        return ValidationResult.APPROVED;
+    }
+}
+
+// Ejecuta en paralelo validaciones independientes entre sí; el rechazo que
+// se devuelve es el del primer manejador declarado, igual que en la cadena secuencial.
+// El primero corre en el hilo que llama y el resto en el executor, que no debe ser el
+// common pool (ver ChainBuilder).
+class ParallelValidationHandler extends Handler {
+    private final Handler[] handlers;
+    private final Executor executor;
+
+    public ParallelValidationHandler(Executor executor, Handler... handlers) {
+        this.executor = executor;
+        this.handlers = handlers.clone();
+    }
+
+    @Override
+    public void setSink(ValidationEventSink sink) {
+        super.setSink(sink);
+        for (Handler handler : handlers) {
+            handler.setSink(sink);
+        }
+    }
+
+    @Override
+    protected Handler[] members() {
+        return handlers.clone();
+    }
+
+    @Override
+    protected ValidationResult validate(OrderRequest request) {
+        List<CompletableFuture<ValidationResult>> futures = new ArrayList<>(handlers.length - 1);
+        for (int i = 1; i < handlers.length; i++) {
+            Handler handler = handlers[i];
+            futures.add(CompletableFuture.supplyAsync(() -> handler.validateRecorded(request), executor));
+        }
+        ValidationResult rejection = handlers[0].validateRecorded(request);
+        for (CompletableFuture<ValidationResult> future : futures) {
+            ValidationResult other = future.join();
+            if (rejection == null) {
+                rejection = other;
+            }
+        }
+        return rejection;
+    }
+
+    @Override
+    protected String successMessage(OrderRequest request) {
+        StringBuilder message = new StringBuilder();
+        for (Handler handler : handlers) {
+            if (message.length() > 0) {
+                message.append("\n");
+            }
+            message.append(handler.successMessage(request));
+        }
+        return message.toString();
+    }
+
+    @Override
+    protected int validateBatch(OrderRequest[] requests, int[] pending, int count, ValidationResult[] results) {
+        long start = System.nanoTime();
+        int passed = count;
+        for (Handler handler : handlers) {
+            if (passed == 0) {
+                break;
+            }
+            passed = handler.validateBatch(requests, pending, passed, results);
+        }
+        getMetrics().recordBatch(System.nanoTime() - start, count, passed);
+        return passed;
+    }
+}
+
+class ChainBuilder {
+    private final Executor executor;
+    private ValidationEventSink sink = ConsoleEventSink.INSTANCE;
+    private Handler first;
+    private Handler last;
+
+    // Sin executor solo admite then(); parallel() lo exige.
+    public ChainBuilder() {
+        this.executor = null;
+    }
+
+    // Los miembros de los grupos paralelos corren en este executor. Las validaciones de
+    // stock o pago bloquean esperando a sistemas externos, así que debe ser un pool propio
+    // y acotado, nunca ForkJoinPool.commonPool(): lo comparten los parallel streams y los
+    // CompletableFuture sin executor, y unas pocas consultas lentas lo dejarían sin hilos.
+    public ChainBuilder(Executor executor) {
+        this.executor = executor;
+    }
+
+    public ChainBuilder sink(ValidationEventSink sink) {
+        this.sink = sink;
+        for (Handler handler = first; handler != null; handler = handler.nextHandler) {
+            handler.setSink(sink);
+        }
+        return this;
+    }
+
+    public ChainBuilder then(Handler handler) {
+        handler.setSink(sink);
+        if (first == null) {
+            first = handler;
+        } else {
+            last.setNext(handler);
+        }
+        last = handler;
+        return this;
+    }
+
+    // Solo para validaciones sin efectos sobre la solicitud (stock, pago, envío);
+    // el descuento modifica el precio y debe ir después con then().
+    public ChainBuilder parallel(Handler... handlers) {
+        if (handlers.length == 0) {
+            throw new IllegalArgumentException("Se requiere al menos un manejador.");
+        }
+        if (handlers.length == 1) {
+            return then(handlers[0]);
+        }
+        if (executor == null) {
+            throw new IllegalStateException("parallel() requiere un executor: new ChainBuilder(executor).");
+        }
+        return then(new ParallelValidationHandler(executor, handlers));
+    }
+
+    public Handler build() {
+        if (first == null) {
+            throw new IllegalStateException("La cadena no tiene manejadores.");
+        }
+        return first;
     }
 }
 
@@ -96,40 +931,55 @@ public class Main {
                     .setNext(discountHandler)
                     .setNext(approvalHandler);
 
-        Map<String, Object> request1 = Map.of(
-            "in_stock", true,
-            "payment_method", "credit_card",
-            "shipping_address", "123 Main St",
-            "is_premium_customer", true,
-            "total_price", 100.0
-        );
-
-        Map<String, Object> request2 = Map.of(
-            "in_stock", true,
-            "payment_method", "debit_card", 
-            "shipping_address", "456 Elm St",
-            "is_premium_customer", false,
-            "total_price", 200.0
-        );
-
-        Map<String, Object> request3 = Map.of(
-            "in_stock", false, 
-            "payment_method", "paypal",
-            "shipping_address", "789 Oak St",
-            "is_premium_customer", true,
-            "total_price", 150.0
-        );
+        OrderRequest request1 = new OrderRequest(true, "credit_card", "123 Main St", true, 100.0);
+        OrderRequest request2 = new OrderRequest(true, "debit_card", "456 Elm St", false, 200.0);
+        OrderRequest request3 = new OrderRequest(false, "paypal", "789 Oak St", true, 150.0);
 
         System.out.println("\n=== Procesando Solicitud 1 ===");
-        String result1 = stockHandler.handle(request1);
-        System.out.println(result1);
+        ValidationResult result1 = stockHandler.handle(request1);
+        System.out.println(result1.render(request1));
 
         System.out.println("\n=== Procesando Solicitud 2 ===");
-        String result2 = stockHandler.handle(request2);
-        System.out.println(result2);
+        ValidationResult result2 = stockHandler.handle(request2);
+        System.out.println(result2.render(request2));
 
         System.out.println("\n=== Procesando Solicitud 3 ===");
-        String result3 = stockHandler.handle(request3);
-        System.out.println(result3);
+        ValidationResult result3 = stockHandler.handle(request3);
+        System.out.println(result3.render(request3));
+
+        System.out.println("\n=== Procesando Solicitud 4 (validaciones en paralelo) ===");
+        AsyncEventSink asyncSink = new AsyncEventSink(ConsoleEventSink.INSTANCE, 1024);
+        ExecutorService validationPool = Executors.newFixedThreadPool(2);
+        Handler parallelChain = new ChainBuilder(validationPool)
+            .sink(asyncSink)
+            .parallel(new StockValidationHandler(), new PaymentValidationHandler(), new ShippingValidationHandler())
+            .then(new DiscountValidationHandler())
+            .then(new ApprovalHandler())
+            .build();
+        OrderRequest request4 = new OrderRequest(true, "paypal", "321 Maple St", true, 50.0);
+        ValidationResult result4 = parallelChain.handle(request4);
+        validationPool.shutdown();
+        asyncSink.close();
+        System.out.println(result4.render(request4));
+        for (Map.Entry<String, HandlerMetrics.Snapshot> entry : ChainMetrics.snapshot(parallelChain).entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+        }
+
+        System.out.println("\n=== Procesando Lote ===");
+        OrderRequest[] batch = {
+            new OrderRequest(true, "bank_transfer", "10 Pine St", false, 80.0),
+            new OrderRequest(true, "paypal", "", true, 60.0),
+            new OrderRequest(true, "credit_card", "22 Cedar St", true, 300.0),
+            new OrderRequest(false, "credit_card", "5 Birch St", false, 40.0)
+        };
+        ValidationResult[] batchResults = stockHandler.handleBatch(batch);
+        for (int i = 0; i < batch.length; i++) {
+            System.out.println(batchResults[i].render(batch[i]));
+        }
+
+        System.out.println("\n=== Métricas por manejador ===");
+        for (Map.Entry<String, HandlerMetrics.Snapshot> entry : ChainMetrics.snapshot(stockHandler).entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+        }
     }
 }
@@ -1,97 +1,1068 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// Tabla de cadenas: cada texto distinto se guarda una sola vez y se identifica por un int.
+// En modo UTF-8 se guardan solo los bytes y la String se reconstruye al leerla.
+// Cada proyecto tiene la suya, compartida por sus categorías, así un texto repetido en
+// varias categorías se guarda una vez y se libera junto con el proyecto.
+// Las búsquedas de textos ya conocidos no toman cerrojo: la ranura se publica después
+// de escribir el valor.
+class DiccionarioCadenas {
+    private final boolean utf8;
+    private volatile Object[] valores = new Object[64];
+    private volatile int[] hashes = new int[64];
+    // Direccionamiento abierto: id + 1, 0 marca hueco libre.
+    private volatile AtomicIntegerArray tabla = new AtomicIntegerArray(128);
+    private volatile int cantidad;
+
+    public DiccionarioCadenas(boolean utf8) {
+        this.utf8 = utf8;
+    }
+
+    public int codificar(String texto) {
+        Object clave = utf8 ? texto.getBytes(StandardCharsets.UTF_8) : texto;
+        int hash = utf8 ? Arrays.hashCode((byte[]) clave) : texto.hashCode();
+        AtomicIntegerArray ranuras = tabla;
+        int mascara = ranuras.length() - 1;
+        for (int i = mezclar(hash) & mascara, id; (id = ranuras.getAcquire(i) - 1) >= 0; i = (i + 1) & mascara) {
+            if (hashes[id] == hash && iguales(valores[id], clave)) {
+                return id;
+            }
+        }
+        return insertar(clave, hash);
+    }
+
+    // Vuelve a buscar con el cerrojo tomado por si otro hilo insertó el mismo texto.
+    private synchronized int insertar(Object clave, int hash) {
+        AtomicIntegerArray ranuras = tabla;
+        int mascara = ranuras.length() - 1;
+        int i = mezclar(hash) & mascara;
+        for (int id; (id = ranuras.get(i) - 1) >= 0; i = (i + 1) & mascara) {
+            if (hashes[id] == hash && iguales(valores[id], clave)) {
+                return id;
+            }
+        }
+        int id = cantidad;
+        if (id == valores.length) {
+            valores = Arrays.copyOf(valores, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        valores[id] = clave;
+        hashes[id] = hash;
+        ranuras.setRelease(i, id + 1);
+        cantidad = id + 1;
+        if (cantidad * 2 > ranuras.length()) {
+            redimensionar();
+        }
+        return id;
+    }
+
+    public String decodificar(int id) {
+        Object valor = valores[id];
+        return utf8 ? new String((byte[]) valor, StandardCharsets.UTF_8) : (String) valor;
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    private void redimensionar() {
+        AtomicIntegerArray nueva = new AtomicIntegerArray(tabla.length() * 2);
+        int mascara = nueva.length() - 1;
+        for (int id = 0; id < cantidad; id++) {
+            int i = mezclar(hashes[id]) & mascara;
+            while (nueva.get(i) != 0) {
+                i = (i + 1) & mascara;
+            }
+            nueva.set(i, id + 1);
+        }
+        tabla = nueva;
+    }
+
+    private static int mezclar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean iguales(Object guardado, Object clave) {
+        return guardado instanceof byte[]
+            ? Arrays.equals((byte[]) guardado, (byte[]) clave)
+            : guardado.equals(clave);
+    }
+}
+
+// Una tarea suelta guarda sus textos tal cual; las que salen de un almacén guardan
+// ids en el diccionario del almacén.
 class Tarea {
-    private String nombre;
-    private String descripcion;
+    private final DiccionarioCadenas diccionario;
+    private final int nombre;
+    private final int descripcion;
+    private final String textoNombre;
+    private final String textoDescripcion;
 
     public Tarea(String nombre, String descripcion) {
+        this.diccionario = null;
+        this.nombre = -1;
+        this.descripcion = -1;
+        this.textoNombre = nombre;
+        this.textoDescripcion = descripcion;
+    }
+
+    public Tarea(String nombre, String descripcion, DiccionarioCadenas diccionario) {
+        this(diccionario, diccionario.codificar(nombre), diccionario.codificar(descripcion));
+    }
+
+    // Vista sobre ids ya codificados; la usan los almacenes al leer.
+    Tarea(DiccionarioCadenas diccionario, int nombre, int descripcion) {
+        this.diccionario = diccionario;
         this.nombre = nombre;
         this.descripcion = descripcion;
+        this.textoNombre = null;
+        this.textoDescripcion = null;
+    }
+
+    // La misma tarea con los textos en el diccionario indicado; no copia si ya está en él.
+    Tarea adoptadaPor(DiccionarioCadenas destino) {
+        if (diccionario == destino) {
+            return this;
+        }
+        return new Tarea(destino, destino.codificar(getNombre()), destino.codificar(getDescripcion()));
+    }
+
+    int idNombre() {
+        return nombre;
+    }
+
+    int idDescripcion() {
+        return descripcion;
+    }
+
+    public String getNombre() {
+        return diccionario == null ? textoNombre : diccionario.decodificar(nombre);
+    }
+
+    public String getDescripcion() {
+        return diccionario == null ? textoDescripcion : diccionario.decodificar(descripcion);
     }
 
     @Override
     public String toString() {
-        return nombre + ": " + descripcion;
+        return getNombre() + ": " + getDescripcion();
+    }
+}
+
+// Secuencia de pares de enteros de solo añadido. Un recorrido toma el tamaño al crearse
+// y no ve las altas posteriores.
+interface AlmacenPares {
+    // Devuelve la posición del par.
+    int agregar(int primero, int segundo);
+
+    int tamano();
+
+    int primero(int indice);
+
+    int segundo(int indice);
+
+    // Copia en destino pares consecutivos desde 'desde', sin pasar de 'hasta' ni de la
+    // capacidad de destino, y devuelve cuántos copió.
+    int leerPagina(int desde, int hasta, int[] destino);
+
+    // Libera lo que el almacén ocupa fuera del heap.
+    default void cerrar() {
+    }
+}
+
+// Pares en memoria en bloques de tamaño fijo. Las altas nunca mueven los pares ya
+// publicados, así que una instantánea es solo el tamaño leído en un momento dado.
+class AlmacenMemoria implements AlmacenPares {
+    private static final int BITS = 10;
+    private static final int PARES_POR_BLOQUE = 1 << BITS;
+    private static final int MASCARA = PARES_POR_BLOQUE - 1;
+
+    private volatile int[][] bloques = new int[4][];
+    private volatile int tamano;
+
+    // El par se escribe antes de publicar el nuevo tamaño; quien lee el tamaño ve el par.
+    @Override
+    public synchronized int agregar(int primero, int segundo) {
+        int indice = tamano;
+        int bloque = indice >>> BITS;
+        int[][] actuales = bloques;
+        if (bloque == actuales.length) {
+            actuales = Arrays.copyOf(actuales, actuales.length * 2);
+        }
+        if (actuales[bloque] == null) {
+            actuales[bloque] = new int[PARES_POR_BLOQUE * 2];
+        }
+        int posicion = (indice & MASCARA) * 2;
+        actuales[bloque][posicion] = primero;
+        actuales[bloque][posicion + 1] = segundo;
+        bloques = actuales;
+        tamano = indice + 1;
+        return indice;
+    }
+
+    @Override
+    public int tamano() {
+        return tamano;
+    }
+
+    @Override
+    public int primero(int indice) {
+        return bloques[indice >>> BITS][(indice & MASCARA) * 2];
+    }
+
+    @Override
+    public int segundo(int indice) {
+        return bloques[indice >>> BITS][(indice & MASCARA) * 2 + 1];
+    }
+
+    @Override
+    public int leerPagina(int desde, int hasta, int[] destino) {
+        int cantidad = Math.min(Math.min(hasta - desde, destino.length / 2), PARES_POR_BLOQUE - (desde & MASCARA));
+        System.arraycopy(bloques[desde >>> BITS], (desde & MASCARA) * 2, destino, 0, cantidad * 2);
+        return cantidad;
+    }
+}
+
+// Pares en disco: registros fijos de 8 bytes en segmentos de solo añadido proyectados
+// en memoria, así el heap no crece con el número de pares. Los pares apuntan a
+// estructuras del heap, por eso los segmentos no sobreviven al proceso: cada almacén crea
+// un subdirectorio nuevo dentro del indicado, así dos almacenes nunca comparten ficheros,
+// y lo borra al cerrarse o, como tarde, al salir la JVM.
+class AlmacenDisco implements AlmacenPares {
+    private static final int BITS = 20;
+    private static final int PARES_POR_SEGMENTO = 1 << BITS;
+    private static final int MASCARA = PARES_POR_SEGMENTO - 1;
+
+    private final Path directorio;
+    private volatile IntBuffer[] segmentos = new IntBuffer[0];
+    private volatile int tamano;
+    private boolean cerrado;
+
+    public AlmacenDisco(Path directorio) throws IOException {
+        this.directorio = Files.createTempDirectory(Files.createDirectories(directorio), "pares-");
+        this.directorio.toFile().deleteOnExit();
+    }
+
+    private Path segmento(int indice) {
+        return directorio.resolve(String.format("pares-%05d.seg", indice));
+    }
+
+    private IntBuffer proyectar(int indice) throws IOException {
+        Path ruta = segmento(indice);
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ruta.toFile().deleteOnExit();
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, PARES_POR_SEGMENTO * 8L).asIntBuffer();
+        }
+    }
+
+    @Override
+    public synchronized int agregar(int primero, int segundo) {
+        if (cerrado) {
+            throw new IllegalStateException("Almacén cerrado: " + directorio);
+        }
+        int indice = tamano;
+        int segmento = indice >>> BITS;
+        IntBuffer[] actuales = segmentos;
+        if (segmento == actuales.length) {
+            actuales = Arrays.copyOf(actuales, segmento + 1);
+            try {
+                actuales[segmento] = proyectar(segmento);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int posicion = (indice & MASCARA) * 2;
+        actuales[segmento].put(posicion, primero);
+        actuales[segmento].put(posicion + 1, segundo);
+        segmentos = actuales;
+        tamano = indice + 1;
+        return indice;
+    }
+
+    @Override
+    public int tamano() {
+        return tamano;
+    }
+
+    @Override
+    public int primero(int indice) {
+        return segmentos[indice >>> BITS].get((indice & MASCARA) * 2);
+    }
+
+    @Override
+    public int segundo(int indice) {
+        return segmentos[indice >>> BITS].get((indice & MASCARA) * 2 + 1);
+    }
+
+    @Override
+    public int leerPagina(int desde, int hasta, int[] destino) {
+        int cantidad = Math.min(Math.min(hasta - desde, destino.length / 2), PARES_POR_SEGMENTO - (desde & MASCARA));
+        segmentos[desde >>> BITS].get((desde & MASCARA) * 2, destino, 0, cantidad * 2);
+        return cantidad;
+    }
+
+    // Borra los segmentos y el subdirectorio. Las proyecciones ya abiertas siguen siendo
+    // legibles hasta que se liberan; si el sistema no deja borrar un fichero proyectado,
+    // queda para el borrado al salir.
+    @Override
+    public synchronized void cerrar() {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        try {
+            for (int i = 0; i < segmentos.length; i++) {
+                Files.deleteIfExists(segmento(i));
+            }
+            Files.deleteIfExists(directorio);
+        } catch (IOException e) {
+            // Sigue registrado en deleteOnExit.
+        }
+    }
+}
+
+// Tareas de una categoría: pares (id de nombre, id de descripción) en el diccionario
+// del almacén. Las tareas se materializan al leerlas.
+class AlmacenTareas {
+    private final DiccionarioCadenas diccionario;
+    private final AlmacenPares pares;
+
+    public AlmacenTareas(DiccionarioCadenas diccionario, AlmacenPares pares) {
+        this.diccionario = diccionario;
+        this.pares = pares;
+    }
+
+    DiccionarioCadenas diccionario() {
+        return diccionario;
+    }
+
+    // Adopta la tarea en el diccionario y devuelve su posición.
+    public int agregar(Tarea tarea) {
+        Tarea adoptada = tarea.adoptadaPor(diccionario);
+        return pares.agregar(adoptada.idNombre(), adoptada.idDescripcion());
+    }
+
+    public int tamano() {
+        return pares.tamano();
+    }
+
+    public Tarea obtener(int indice) {
+        if (indice < 0 || indice >= pares.tamano()) {
+            throw new IndexOutOfBoundsException(indice);
+        }
+        return new Tarea(diccionario, pares.primero(indice), pares.segundo(indice));
+    }
+
+    public Iterator<Tarea> rango(int desde, int hasta) {
+        return new IteradorPaginas(pares, desde, hasta, (nombre, descripcion) -> new Tarea(diccionario, nombre, descripcion));
+    }
+
+    public void cerrar() {
+        pares.cerrar();
     }
 }
 
-class CategoriaTareas implements Iterable<Tarea> {
+// Recorre un almacén de pares página a página con un buffer fijo, así la memoria del
+// recorrido no depende del tamaño del almacén.
+class IteradorPaginas implements Iterator<Tarea> {
+    private static final int PARES_POR_PAGINA = 512;
+
+    interface Lector {
+        Tarea leer(int primero, int segundo);
+    }
+
+    private final AlmacenPares almacen;
+    private final Lector lector;
+    private final int[] pagina;
+    private int siguiente;
+    private final int hasta;
+    private int enPagina;
+    private int leidos;
+
+    public IteradorPaginas(AlmacenPares almacen, int desde, int hasta, Lector lector) {
+        this.almacen = almacen;
+        this.lector = lector;
+        this.pagina = new int[Math.min(hasta - desde, PARES_POR_PAGINA) * 2];
+        this.siguiente = desde;
+        this.hasta = hasta;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return leidos < enPagina || siguiente < hasta;
+    }
+
+    @Override
+    public Tarea next() {
+        if (leidos == enPagina) {
+            if (siguiente >= hasta) {
+                throw new NoSuchElementException();
+            }
+            enPagina = almacen.leerPagina(siguiente, hasta, pagina);
+            siguiente += enPagina;
+            leidos = 0;
+        }
+        int posicion = 2 * leidos++;
+        return lector.leer(pagina[posicion], pagina[posicion + 1]);
+    }
+}
+
+// Posiciones de tareas en el registro del proyecto, en orden creciente; los índices
+// guardan estos enteros en lugar de referencias a las tareas.
+class PosicionesTareas {
+    private volatile int[] posiciones = new int[4];
+    private volatile int tamano;
+
+    public synchronized void agregar(int posicion) {
+        int indice = tamano;
+        int[] actuales = posiciones;
+        if (indice == actuales.length) {
+            actuales = Arrays.copyOf(actuales, indice * 2);
+        }
+        actuales[indice] = posicion;
+        posiciones = actuales;
+        tamano = indice + 1;
+    }
+
+    public int tamano() {
+        return tamano;
+    }
+
+    public int obtener(int indice) {
+        return posiciones[indice];
+    }
+
+    // Búsqueda binaria entre las primeras 'hasta' posiciones.
+    public boolean contiene(int posicion, int hasta) {
+        return Arrays.binarySearch(posiciones, 0, hasta, posicion) >= 0;
+    }
+}
+
+// Envuelve un recorrido y lanza ConcurrentModificationException si el almacén
+// vigilado cambia de tamaño mientras se recorre.
+class IteradorEstricto implements Iterator<Tarea> {
+    private final Iterator<Tarea> origen;
+    private final IntSupplier vigilado;
+    private final int esperado;
+
+    public IteradorEstricto(Iterator<Tarea> origen, IntSupplier vigilado, int esperado) {
+        this.origen = origen;
+        this.vigilado = vigilado;
+        this.esperado = esperado;
+    }
+
+    @Override
+    public boolean hasNext() {
+        comprobar();
+        return origen.hasNext();
+    }
+
+    @Override
+    public Tarea next() {
+        comprobar();
+        return origen.next();
+    }
+
+    private void comprobar() {
+        if (vigilado.getAsInt() != esperado) {
+            throw new ConcurrentModificationException();
+        }
+    }
+}
+
+class CategoriaTareas implements Iterable<Tarea>, AutoCloseable {
     private String nombre;
-    private List<Tarea> tareas;
+    // Hasta unirse a un proyecto usa un diccionario propio; al unirse pasa al del proyecto.
+    private volatile AlmacenTareas tareas;
+    private final Path directorio;
+    private Proyecto proyecto;
+    // Posición de la categoría en el proyecto; el registro del proyecto la guarda.
+    private int numero;
 
     public CategoriaTareas(String nombre) {
         this.nombre = nombre;
-        this.tareas = new ArrayList<>();
+        this.tareas = new AlmacenTareas(new DiccionarioCadenas(false), new AlmacenMemoria());
+        this.directorio = null;
     }
 
-    public void agregarTarea(Tarea tarea) {
-        tareas.add(tarea);
+    // Las tareas se guardan en segmentos en disco, en un subdirectorio propio del directorio.
+    public CategoriaTareas(String nombre, Path directorio) throws IOException {
+        this.nombre = nombre;
+        this.tareas = new AlmacenTareas(new DiccionarioCadenas(false), new AlmacenDisco(directorio));
+        this.directorio = directorio;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public synchronized void agregarTarea(Tarea tarea) {
+        int posicion = tareas.agregar(tarea);
+        if (proyecto != null) {
+            proyecto.indexar(numero, posicion, tarea);
+        }
+    }
+
+    // Pasa las tareas al diccionario del proyecto, se da de alta en él e indexa las tareas
+    // existentes bajo el mismo cerrojo que agregarTarea, así ninguna alta concurrente se
+    // pierde ni se indexa dos veces. Los recorridos ya abiertos terminan sobre el almacén
+    // anterior. Devuelve false si la categoría ya era del proyecto.
+    synchronized boolean asignarProyecto(Proyecto proyecto) {
+        if (this.proyecto != null && this.proyecto != proyecto) {
+            throw new IllegalStateException("La categoría '" + nombre + "' ya pertenece a otro proyecto");
+        }
+        if (this.proyecto != null) {
+            return false;
+        }
+        AlmacenTareas anterior = tareas;
+        AlmacenTareas copia = nuevoAlmacen(proyecto.textos());
+        for (int i = 0; i < anterior.tamano(); i++) {
+            copia.agregar(anterior.obtener(i));
+        }
+        tareas = copia;
+        anterior.cerrar();
+        this.proyecto = proyecto;
+        this.numero = proyecto.registrarCategoria(this);
+        for (int i = 0; i < copia.tamano(); i++) {
+            proyecto.indexar(numero, i, copia.obtener(i));
+        }
+        return true;
+    }
+
+    private AlmacenTareas nuevoAlmacen(DiccionarioCadenas textos) {
+        if (directorio == null) {
+            return new AlmacenTareas(textos, new AlmacenMemoria());
+        }
+        try {
+            return new AlmacenTareas(textos, new AlmacenDisco(directorio));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    Tarea obtener(int posicion) {
+        return tareas.obtener(posicion);
+    }
+
+    int cantidad() {
+        return tareas.tamano();
+    }
+
+    // Directorio de los segmentos, o null si la categoría está en memoria.
+    Path directorio() {
+        return directorio;
+    }
+
+    // Borra los segmentos en disco; en memoria no hace nada.
+    @Override
+    public void close() {
+        tareas.cerrar();
     }
 
     @Override
     public Iterator<Tarea> iterator() {
-        return new IteradorCategoria(tareas);
+        return iterator(tareas.tamano());
+    }
+
+    Iterator<Tarea> iterator(int hasta) {
+        return tareas.rango(0, hasta);
+    }
+
+    public Iterator<Tarea> iteradorEstricto() {
+        AlmacenTareas actual = tareas;
+        int esperado = actual.tamano();
+        return new IteradorEstricto(actual.rango(0, esperado), actual::tamano, esperado);
+    }
+
+    @Override
+    public Spliterator<Tarea> spliterator() {
+        return spliterator(tareas.tamano());
+    }
+
+    Spliterator<Tarea> spliterator(int hasta) {
+        return new SpliteradorCategoria(tareas, 0, hasta);
+    }
+
+    public Stream<Tarea> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<Tarea> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
     }
 }
 
-class IteradorCategoria implements Iterator<Tarea> {
-    private List<Tarea> tareas;
-    private int index;
+// Recorre un rango [desde, hasta) del almacén de una categoría y se divide por la mitad.
+class SpliteradorCategoria implements Spliterator<Tarea> {
+    private final AlmacenTareas tareas;
+    private int indice;
+    private final int hasta;
 
-    public IteradorCategoria(List<Tarea> tareas) {
+    public SpliteradorCategoria(AlmacenTareas tareas, int desde, int hasta) {
         this.tareas = tareas;
-        this.index = 0;
+        this.indice = desde;
+        this.hasta = hasta;
     }
 
     @Override
-    public boolean hasNext() {
-        return index < tareas.size();
+    public boolean tryAdvance(Consumer<? super Tarea> accion) {
+        if (indice >= hasta) {
+            return false;
+        }
+        accion.accept(tareas.obtener(indice++));
+        return true;
     }
 
     @Override
-    public Tarea next() {
-        if (!hasNext()) {
-            throw new NoSuchElementException();
+    public void forEachRemaining(Consumer<? super Tarea> accion) {
+        for (; indice < hasta; indice++) {
+            accion.accept(tareas.obtener(indice));
         }
-        return tareas.get(index++);
+    }
+
+    @Override
+    public Spliterator<Tarea> trySplit() {
+        int mitad = (indice + hasta) >>> 1;
+        if (mitad <= indice) {
+            return null;
+        }
+        Spliterator<Tarea> prefijo = new SpliteradorCategoria(tareas, indice, mitad);
+        indice = mitad;
+        return prefijo;
+    }
+
+    @Override
+    public long estimateSize() {
+        return hasta - indice;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
     }
 }
 
-class Proyecto implements Iterable<Tarea> {
+// Índice invertido sobre las descripciones: términos en minúsculas y sin acentos.
+class IndiceTexto {
+    private final NavigableMap<String, PosicionesTareas> terminos = new ConcurrentSkipListMap<>();
+
+    static String normalizar(String texto) {
+        return Normalizer.normalize(texto, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> terminos(String texto) {
+        Set<String> resultado = new LinkedHashSet<>();
+        for (String termino : normalizar(texto).split("[^\\p{L}\\p{N}]+")) {
+            if (!termino.isEmpty()) {
+                resultado.add(termino);
+            }
+        }
+        return resultado;
+    }
+
+    public void agregar(Tarea tarea, int posicion) {
+        for (String termino : terminos(tarea.getDescripcion())) {
+            terminos.computeIfAbsent(termino, clave -> new PosicionesTareas()).agregar(posicion);
+        }
+    }
+
+    public PosicionesTareas conTermino(String termino) {
+        return terminos.get(termino);
+    }
+
+    public Collection<PosicionesTareas> conPrefijo(String prefijo) {
+        return terminos.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false).values();
+    }
+}
+
+class Proyecto implements Iterable<Tarea>, AutoCloseable {
     private String nombre;
-    private List<CategoriaTareas> categorias;
+    private final List<CategoriaTareas> categorias;
+    private final Map<String, PosicionesTareas> indicePorNombre = new ConcurrentHashMap<>();
+    private final Map<String, List<CategoriaTareas>> categoriasPorNombre = new ConcurrentHashMap<>();
+    private final IndiceTexto indiceDescripciones = new IndiceTexto();
+    // Textos de todas sus categorías.
+    private final DiccionarioCadenas textos;
+    // Todas las tareas en orden de alta como pares (número de categoría, posición en la
+    // categoría), sin copiar sus textos; su tamaño es la versión del proyecto y los índices
+    // guardan posiciones dentro de él. Empieza en memoria y pasa a disco con la primera
+    // categoría en disco.
+    private volatile AlmacenPares registro;
 
     public Proyecto(String nombre) {
+        this(nombre, false);
+    }
+
+    // Con textosUtf8 los textos se guardan como bytes UTF-8: ocupan la mitad si son casi
+    // todo ASCII, a cambio de reconstruir la String en cada lectura.
+    public Proyecto(String nombre, boolean textosUtf8) {
+        this.nombre = nombre;
+        this.categorias = new CopyOnWriteArrayList<>();
+        this.textos = new DiccionarioCadenas(textosUtf8);
+        this.registro = new AlmacenMemoria();
+    }
+
+    // El registro se guarda en segmentos en disco desde el principio.
+    public Proyecto(String nombre, Path directorio) throws IOException {
+        this(nombre, directorio, false);
+    }
+
+    public Proyecto(String nombre, Path directorio, boolean textosUtf8) throws IOException {
         this.nombre = nombre;
-        this.categorias = new ArrayList<>();
+        this.categorias = new CopyOnWriteArrayList<>();
+        this.textos = new DiccionarioCadenas(textosUtf8);
+        this.registro = new AlmacenDisco(directorio);
+    }
+
+    DiccionarioCadenas textos() {
+        return textos;
+    }
+
+    int textosDistintos() {
+        return textos.cantidad();
     }
 
     public void agregarCategoria(CategoriaTareas categoria) {
-        categorias.add(categoria);
+        if (categoria.directorio() != null) {
+            registroEnDisco(categoria.directorio());
+        }
+        if (categoria.asignarProyecto(this)) {
+            categoriasPorNombre.computeIfAbsent(categoria.getNombre(), clave -> new CopyOnWriteArrayList<>()).add(categoria);
+        }
+    }
+
+    // Lo invoca CategoriaTareas al unirse, antes de indexar sus tareas: su número es su
+    // posición en la lista.
+    int registrarCategoria(CategoriaTareas categoria) {
+        synchronized (categorias) {
+            categorias.add(categoria);
+            return categorias.size() - 1;
+        }
+    }
+
+    // Copia el registro en memoria a disco y lo sustituye. Las posiciones no cambian, así
+    // que los índices siguen valiendo y los recorridos ya abiertos terminan sobre el anterior.
+    private synchronized void registroEnDisco(Path directorio) {
+        if (registro instanceof AlmacenDisco) {
+            return;
+        }
+        AlmacenPares enDisco;
+        try {
+            enDisco = new AlmacenDisco(directorio);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < registro.tamano(); i++) {
+            enDisco.agregar(registro.primero(i), registro.segundo(i));
+        }
+        registro = enDisco;
+    }
+
+    // Cierra el registro y las categorías, que pertenecen al proyecto.
+    @Override
+    public void close() {
+        registro.cerrar();
+        for (CategoriaTareas categoria : categorias) {
+            categoria.close();
+        }
+    }
+
+    // Lo invoca CategoriaTareas, así los índices se mantienen con cada alta.
+    synchronized void indexar(int categoria, int posicionEnCategoria, Tarea tarea) {
+        int posicion = registro.agregar(categoria, posicionEnCategoria);
+        indicePorNombre.computeIfAbsent(tarea.getNombre(), clave -> new PosicionesTareas()).agregar(posicion);
+        indiceDescripciones.agregar(tarea, posicion);
+    }
+
+    public long version() {
+        return registro.tamano();
+    }
+
+    // Tareas dadas de alta después de la versión indicada, hasta la versión actual.
+    public Iterator<Tarea> cambiosDesde(long version) {
+        AlmacenPares actual = registro;
+        if (version < 0 || version > actual.tamano()) {
+            throw new IllegalArgumentException("Versión desconocida: " + version);
+        }
+        return new IteradorPaginas(actual, (int) version, actual.tamano(), this::tareaEn);
+    }
+
+    private Tarea tareaEn(int categoria, int posicion) {
+        return categorias.get(categoria).obtener(posicion);
+    }
+
+    private Tarea tareaEn(int posicion) {
+        AlmacenPares actual = registro;
+        return tareaEn(actual.primero(posicion), actual.segundo(posicion));
+    }
+
+    public Iterator<Tarea> buscarPorNombre(String nombreTarea) {
+        PosicionesTareas posiciones = indicePorNombre.get(nombreTarea);
+        if (posiciones == null) {
+            return Collections.emptyIterator();
+        }
+        return IntStream.range(0, posiciones.tamano())
+            .map(posiciones::obtener)
+            .mapToObj(this::tareaEn)
+            .iterator();
+    }
+
+    public Iterator<Tarea> tareasDeCategoria(String nombreCategoria) {
+        return new IteradorProyecto(categoriasPorNombre.getOrDefault(nombreCategoria, Collections.emptyList()));
+    }
+
+    // Tareas con algún término de la descripción que empieza por el prefijo, en orden de alta.
+    public Iterator<Tarea> buscarPorPrefijo(String prefijo) {
+        String normalizado = IndiceTexto.normalizar(prefijo.trim());
+        BitSet encontradas = new BitSet();
+        for (PosicionesTareas posiciones : indiceDescripciones.conPrefijo(normalizado)) {
+            int hasta = posiciones.tamano();
+            for (int i = 0; i < hasta; i++) {
+                encontradas.set(posiciones.obtener(i));
+            }
+        }
+        return encontradas.stream().mapToObj(this::tareaEn).iterator();
+    }
+
+    // Tareas cuya descripción contiene todos los términos de la consulta. Recorre la
+    // lista más corta y busca cada posición en las demás, que están ordenadas.
+    public Iterator<Tarea> buscarTexto(String consulta) {
+        List<PosicionesTareas> listas = new ArrayList<>();
+        for (String termino : IndiceTexto.terminos(consulta)) {
+            PosicionesTareas posiciones = indiceDescripciones.conTermino(termino);
+            if (posiciones == null) {
+                return Collections.emptyIterator();
+            }
+            listas.add(posiciones);
+        }
+        if (listas.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        int[] hastas = new int[listas.size()];
+        for (int i = 0; i < hastas.length; i++) {
+            hastas[i] = listas.get(i).tamano();
+        }
+        int menor = 0;
+        for (int i = 1; i < hastas.length; i++) {
+            if (hastas[i] < hastas[menor]) {
+                menor = i;
+            }
+        }
+        PosicionesTareas primera = listas.get(menor);
+        return IntStream.range(0, hastas[menor])
+            .map(primera::obtener)
+            .filter(posicion -> {
+                for (int i = 0; i < hastas.length; i++) {
+                    if (!listas.get(i).contiene(posicion, hastas[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            })
+            .mapToObj(this::tareaEn)
+            .iterator();
+    }
+
+    public Iterator<Tarea> filtrar(Predicate<Tarea> condicion) {
+        return new IteradorFiltrado(iterator(), condicion);
     }
 
     @Override
     public Iterator<Tarea> iterator() {
         return new IteradorProyecto(categorias);
     }
+
+    // Falla con ConcurrentModificationException si se añade alguna tarea durante el recorrido.
+    public Iterator<Tarea> iteradorEstricto() {
+        int esperado = registro.tamano();
+        return new IteradorEstricto(iterator(), () -> registro.tamano(), esperado);
+    }
+
+    @Override
+    public Spliterator<Tarea> spliterator() {
+        CategoriaTareas[] instantanea = categorias.toArray(new CategoriaTareas[0]);
+        return new SpliteradorProyecto(instantanea, limites(instantanea), 0, instantanea.length, null);
+    }
+
+    public Stream<Tarea> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<Tarea> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    // Tamaño de cada categoría al tomar la instantánea; los recorridos no pasan de ahí.
+    static int[] limites(CategoriaTareas[] categorias) {
+        int[] limites = new int[categorias.length];
+        for (int i = 0; i < categorias.length; i++) {
+            limites[i] = categorias[i].cantidad();
+        }
+        return limites;
+    }
+}
+
+class IteradorFiltrado implements Iterator<Tarea> {
+    private final Iterator<Tarea> origen;
+    private final Predicate<Tarea> condicion;
+    private Tarea siguiente;
+
+    public IteradorFiltrado(Iterator<Tarea> origen, Predicate<Tarea> condicion) {
+        this.origen = origen;
+        this.condicion = condicion;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (siguiente == null && origen.hasNext()) {
+            Tarea candidata = origen.next();
+            if (condicion.test(candidata)) {
+                siguiente = candidata;
+            }
+        }
+        return siguiente != null;
+    }
+
+    @Override
+    public Tarea next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Tarea tarea = siguiente;
+        siguiente = null;
+        return tarea;
+    }
 }
 
+// Mientras queden varias categorías divide entre categorías; cuando solo queda una,
+// delega la división en el spliterator de esa categoría. Cada categoría se recorre
+// hasta su límite en la instantánea.
+class SpliteradorProyecto implements Spliterator<Tarea> {
+    private final CategoriaTareas[] categorias;
+    private final int[] limites;
+    private int siguiente;
+    private final int fin;
+    private Spliterator<Tarea> actual;
+    private long restantes;
+
+    public SpliteradorProyecto(CategoriaTareas[] categorias, int[] limites, int desde, int hasta, Spliterator<Tarea> actual) {
+        this.categorias = categorias;
+        this.limites = limites;
+        this.siguiente = desde;
+        this.fin = hasta;
+        this.actual = actual;
+        this.restantes = actual == null ? 0 : actual.estimateSize();
+        for (int i = desde; i < hasta; i++) {
+            restantes += limites[i];
+        }
+    }
+
+    private Spliterator<Tarea> abrirSiguiente() {
+        int i = siguiente++;
+        return categorias[i].spliterator(limites[i]);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Tarea> accion) {
+        while (actual == null || !actual.tryAdvance(accion)) {
+            if (siguiente >= fin) {
+                return false;
+            }
+            actual = abrirSiguiente();
+        }
+        restantes--;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Tarea> accion) {
+        if (actual != null) {
+            actual.forEachRemaining(accion);
+        }
+        while (siguiente < fin) {
+            abrirSiguiente().forEachRemaining(accion);
+        }
+        actual = null;
+        restantes = 0;
+    }
+
+    @Override
+    public Spliterator<Tarea> trySplit() {
+        int pendientes = fin - siguiente;
+        if (pendientes == 0) {
+            if (actual == null) {
+                return null;
+            }
+            Spliterator<Tarea> prefijo = actual.trySplit();
+            restantes = actual.estimateSize();
+            return prefijo;
+        }
+        if (pendientes == 1 && actual == null) {
+            actual = abrirSiguiente();
+            return trySplit();
+        }
+        int mitad = siguiente + pendientes / 2;
+        Spliterator<Tarea> prefijo = new SpliteradorProyecto(categorias, limites, siguiente, mitad, actual);
+        actual = null;
+        siguiente = mitad;
+        restantes -= prefijo.estimateSize();
+        return prefijo;
+    }
+
+    @Override
+    public long estimateSize() {
+        return restantes;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
+
+// Recorre una instantánea de las categorías tomada al crearlo.
 class IteradorProyecto implements Iterator<Tarea> {
-    private List<CategoriaTareas> categorias;
+    private final CategoriaTareas[] categorias;
+    private final int[] limites;
     private int categoriaIndex;
     private Iterator<Tarea> tareaIterador;
 
     public IteradorProyecto(List<CategoriaTareas> categorias) {
-        this.categorias = categorias;
+        this.categorias = categorias.toArray(new CategoriaTareas[0]);
+        this.limites = Proyecto.limites(this.categorias);
         this.categoriaIndex = 0;
-        this.tareaIterador = categorias.isEmpty() ? Collections.emptyIterator() : categorias.get(0).iterator();
+        this.tareaIterador = this.categorias.length == 0
+            ? Collections.emptyIterator()
+            : this.categorias[0].iterator(limites[0]);
     }
 
     @Override
     public boolean hasNext() {
-        while (!tareaIterador.hasNext() && categoriaIndex < categorias.size() - 1) {
+        while (!tareaIterador.hasNext() && categoriaIndex < categorias.length - 1) {
             categoriaIndex++;
-            tareaIterador = categorias.get(categoriaIndex).iterator();
+            tareaIterador = categorias[categoriaIndex].iterator(limites[categoriaIndex]);
         }
         return tareaIterador.hasNext();
     }
@@ -106,7 +1077,7 @@ class IteradorProyecto implements Iterator<Tarea> {
 }
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         Proyecto proyecto = new Proyecto("Desarrollo de Software");
 
         CategoriaTareas pendientes = new CategoriaTareas("Pendientes");
@@ -132,5 +1103,77 @@ public class Main {
         for (Tarea tarea : enProgreso) {
             System.out.println(tarea);
         }
+
+        System.out.println("\n=== Búsquedas indexadas ===");
+        enProgreso.agregarTarea(new Tarea("Documentar API", "Documentar los endpoints del backend"));
+        Iterator<Tarea> delBackend = proyecto.buscarTexto("backend");
+        while (delBackend.hasNext()) {
+            System.out.println("backend -> " + delBackend.next());
+        }
+        Iterator<Tarea> conDiseno = proyecto.buscarPorPrefijo("dise");
+        while (conDiseno.hasNext()) {
+            System.out.println("dise* -> " + conDiseno.next());
+        }
+        Iterator<Tarea> completas = proyecto.tareasDeCategoria("Completadas");
+        while (completas.hasNext()) {
+            System.out.println("Completadas -> " + completas.next());
+        }
+
+        System.out.println("\n=== Recorrido en paralelo ===");
+        long conPruebas = proyecto.parallelStream()
+            .filter(tarea -> tarea.toString().contains("pruebas"))
+            .count();
+        System.out.println("Tareas que mencionan pruebas: " + conPruebas + " de " + proyecto.stream().count());
+
+        System.out.println("\n=== Cambios incrementales ===");
+        long version = proyecto.version();
+        Iterator<Tarea> instantanea = proyecto.iterator();
+        Iterator<Tarea> estricto = proyecto.iteradorEstricto();
+        estricto.next();
+        pendientes.agregarTarea(new Tarea("Preparar despliegue", "Preparar el despliegue a producción"));
+        completadas.agregarTarea(new Tarea("Configurar CI", "Configurar la integración continua"));
+        Iterator<Tarea> cambios = proyecto.cambiosDesde(version);
+        while (cambios.hasNext()) {
+            System.out.println("Nueva desde v" + version + " -> " + cambios.next());
+        }
+        int vistas = 0;
+        while (instantanea.hasNext()) {
+            instantanea.next();
+            vistas++;
+        }
+        System.out.println("La instantánea sigue viendo " + vistas + " tareas; versión actual " + proyecto.version());
+        try {
+            estricto.next();
+        } catch (ConcurrentModificationException e) {
+            System.out.println("El iterador estricto detectó cambios durante el recorrido");
+        }
+
+        System.out.println("\n=== Textos compartidos ===");
+        CategoriaTareas revisiones = new CategoriaTareas("Revisiones");
+        proyecto.agregarCategoria(revisiones);
+        for (int i = 0; i < 1000; i++) {
+            revisiones.agregarTarea(new Tarea("Revisar código", "Revisar el pull request antes de integrarlo"));
+        }
+        System.out.println(revisiones.cantidad() + " revisiones; el proyecto guarda "
+            + proyecto.textosDistintos() + " textos distintos para " + proyecto.version() + " tareas");
+
+        System.out.println("\n=== Proyecto en disco ===");
+        Path directorio = Files.createTempDirectory("proyecto");
+        try (Proyecto archivo = new Proyecto("Archivo histórico", true)) {
+            CategoriaTareas historico = new CategoriaTareas("Histórico", directorio);
+            archivo.agregarCategoria(historico);
+            for (int i = 0; i < 5000; i++) {
+                historico.agregarTarea(new Tarea("Tarea " + (i % 50), "Tarea archivada del sprint " + (i % 20)));
+            }
+            long archivadas = 0;
+            for (Tarea tarea : archivo) {
+                archivadas++;
+            }
+            System.out.println("Tareas leídas desde disco: " + archivadas);
+            Iterator<Tarea> delSprint = archivo.buscarTexto("sprint 7");
+            System.out.println("Primera del sprint 7 -> " + delSprint.next());
+        } finally {
+            Files.deleteIfExists(directorio);
+        }
     }
 }
@@ -1,39 +1,718 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 interface Observer {
     void update(Serie serie, String episode);
+
+    default void updateBatch(Serie serie, List<String> episodes) {
+        for (String episode : episodes) {
+            update(serie, episode);
+        }
+    }
+}
+
+// Acuse de entrega de un episodio: failed por cada observador cuya entrega lanzó una
+// excepción y completed cuando todos los observadores terminaron, sea cual sea el hilo.
+interface DeliveryReceipt {
+    void failed(Observer observer);
+
+    void completed();
+}
+
+// Ejecutor acotado para notificaciones asíncronas: cuando la cola se llena, el hilo que
+// publica entrega él mismo el bloque, lo que frena al productor en lugar de perder avisos.
+// Una vez cerrado rechaza con RejectedExecutionException en vez de descartar en silencio.
+class NotificationDispatchers {
+    public static ExecutorService bounded(int threads, int queueCapacity) {
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "serie-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), factory, (runnable, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("El despachador de notificaciones está cerrado");
+                }
+                runnable.run();
+            });
+    }
+
+    // Entregas de los lotes que cierra el temporizador de ventana. El temporizador lo comparten
+    // varias series, así que nunca espera permisos ni entrega él mismo a los observadores.
+    private static final ExecutorService TIMED_FLUSHES = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "serie-batch-delivery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public static Executor timedFlushes() {
+        return TIMED_FLUSHES;
+    }
+
+    public static ScheduledExecutorService scheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "serie-batch-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
+
+// Agrupa los episodios que llegan dentro de una ventana de tiempo (o hasta un máximo por
+// lote) y los entrega como una sola actualización por observador. Los lotes cerrados pasan
+// por una única cola y se entregan de uno en uno, en el orden en que se cerraron, aunque los
+// cierre el publicador o el temporizador. Si ya hay demasiados lotes sin terminar de
+// entregar, quien publica espera: los observadores lentos frenan al productor.
+class ReleaseBatcher {
+    private final Serie serie;
+    private final int maxBatch;
+    private final long windowMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore inFlight;
+    private final ArrayDeque<Batch> ready = new ArrayDeque<>();
+    private List<String> pending = new ArrayList<>();
+    private List<DeliveryReceipt> pendingReceipts = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean delivering;
+
+    public ReleaseBatcher(Serie serie, int maxBatch, long windowMillis, int maxInFlight, ScheduledExecutorService scheduler) {
+        if (maxBatch < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("El tamaño de lote y los lotes en curso deben ser positivos");
+        }
+        this.serie = serie;
+        this.maxBatch = maxBatch;
+        this.windowMillis = windowMillis;
+        this.scheduler = scheduler;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    // Lote cerrado con los acuses de sus episodios.
+    private record Batch(List<String> episodes, List<DeliveryReceipt> receipts) {
+    }
+
+    public void add(String episode) {
+        add(episode, null);
+    }
+
+    public void add(String episode, DeliveryReceipt receipt) {
+        boolean closed = false;
+        synchronized (this) {
+            pending.add(episode);
+            if (receipt != null) {
+                pendingReceipts.add(receipt);
+            }
+            if (pending.size() >= maxBatch) {
+                closed = closePending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flushOnTimer, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (closed) {
+            inFlight.acquireUninterruptibly();
+            drain();
+        }
+    }
+
+    public void flush() {
+        boolean closed;
+        synchronized (this) {
+            closed = closePending();
+        }
+        if (closed) {
+            inFlight.acquireUninterruptibly();
+            drain();
+        }
+    }
+
+    // Sin permiso libre, el lote sigue abierto y se reintenta en la siguiente ventana; con
+    // permiso, la entrega pasa a otro hilo y el temporizador queda libre para las demás series.
+    private void flushOnTimer() {
+        if (!inFlight.tryAcquire()) {
+            synchronized (this) {
+                scheduledFlush = pending.isEmpty()
+                    ? null
+                    : scheduler.schedule(this::flushOnTimer, windowMillis, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+        boolean closed;
+        synchronized (this) {
+            closed = closePending();
+        }
+        if (closed) {
+            NotificationDispatchers.timedFlushes().execute(this::drain);
+        } else {
+            inFlight.release();
+        }
+    }
+
+    // Pasa el lote pendiente a la cola de entrega; se llama con el cerrojo tomado.
+    private boolean closePending() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return false;
+        }
+        ready.add(new Batch(Collections.unmodifiableList(pending), pendingReceipts));
+        pending = new ArrayList<>();
+        pendingReceipts = new ArrayList<>();
+        return true;
+    }
+
+    // Entrega el siguiente lote si no hay otro en curso; al terminar cada lote se vuelve a
+    // llamar desde onComplete, así que los lotes nunca se solapan ni se adelantan.
+    private void drain() {
+        Batch batch;
+        synchronized (this) {
+            if (delivering || ready.isEmpty()) {
+                return;
+            }
+            delivering = true;
+            batch = ready.poll();
+        }
+        serie.notifyObservers(batch.episodes(), new DeliveryReceipt() {
+            @Override
+            public void failed(Observer observer) {
+                for (DeliveryReceipt receipt : batch.receipts()) {
+                    receipt.failed(observer);
+                }
+            }
+
+            @Override
+            public void completed() {
+                for (DeliveryReceipt receipt : batch.receipts()) {
+                    receipt.completed();
+                }
+                delivered();
+            }
+        });
+    }
+
+    private void delivered() {
+        synchronized (this) {
+            delivering = false;
+        }
+        inFlight.release();
+        drain();
+    }
+}
+
+// Histograma de latencias en potencias de dos; cada cubo es un LongAdder para no competir al registrar.
+class LatencyHistogram {
+    private final LongAdder[] buckets = new LongAdder[64];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        buckets[64 - Long.numberOfLeadingZeros(Math.max(nanos, 0L))].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanNanos() {
+        long samples = count.sum();
+        return samples == 0 ? 0.0 : (double) totalNanos.sum() / samples;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    // Cota superior del cubo que contiene el percentil pedido.
+    public long percentileNanos(double quantile) {
+        long samples = count.sum();
+        if (samples == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * samples));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                // El límite del cubo puede pasarse del mayor valor visto
+                return i == 0 ? 0 : Math.min(i >= 63 ? Long.MAX_VALUE : (1L << i) - 1, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+}
+
+class ObserverDeliveryStats {
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+    // Media móvil aproximada: las carreras entre hilos solo pierden alguna muestra
+    private volatile double recentNanos;
+
+    void record(long nanos) {
+        deliveries.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        double previous = recentNanos;
+        recentNanos = previous == 0.0 ? nanos : previous + (nanos - previous) * EWMA_WEIGHT;
+    }
+
+    public long getDeliveries() {
+        return deliveries.sum();
+    }
+
+    public double getMeanNanos() {
+        long count = deliveries.sum();
+        return count == 0 ? 0.0 : (double) totalNanos.sum() / count;
+    }
+
+    public double getRecentNanos() {
+        return recentNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+}
+
+class DeliveryMetrics {
+    private final LatencyHistogram fanOut = new LatencyHistogram();
+    private final ConcurrentHashMap<Observer, ObserverDeliveryStats> observers = new ConcurrentHashMap<>();
+    private volatile long slowThresholdNanos = Long.MAX_VALUE;
+    private volatile int minSamples = 1;
+
+    void configureSlowDetection(long thresholdNanos, int minSamples) {
+        this.slowThresholdNanos = thresholdNanos;
+        this.minSamples = Math.max(1, minSamples);
+    }
+
+    void recordFanOut(long nanos) {
+        fanOut.record(nanos);
+    }
+
+    // Serie da de alta y de baja las estadísticas junto con el observador, así no quedan
+    // entradas de observadores que ya se fueron.
+    void track(Observer observer) {
+        observers.putIfAbsent(observer, new ObserverDeliveryStats());
+    }
+
+    void forget(Observer observer) {
+        observers.remove(observer);
+    }
+
+    // Devuelve true si, con esta muestra, el observador supera el umbral de lentitud.
+    // Una entrega en curso a un observador ya dado de baja no se registra.
+    boolean recordDelivery(Observer observer, long nanos) {
+        ObserverDeliveryStats stats = observers.get(observer);
+        if (stats == null) {
+            return false;
+        }
+        stats.record(nanos);
+        return stats.getDeliveries() >= minSamples && stats.getRecentNanos() > slowThresholdNanos;
+    }
+
+    public LatencyHistogram getFanOut() {
+        return fanOut;
+    }
+
+    public Map<Observer, ObserverDeliveryStats> getObserverStats() {
+        return Collections.unmodifiableMap(observers);
+    }
+}
+
+class DeliverySnapshot {
+    private final String serieName;
+    private final long fanOuts;
+    private final double fanOutMeanNanos;
+    private final long fanOutP99Nanos;
+    private final long fanOutMaxNanos;
+    private final Map<String, Double> meanDeliveryNanos;
+    private final List<String> slowObservers;
+
+    DeliverySnapshot(String serieName, DeliveryMetrics metrics, ObserverRegistry.Chunk[] slow) {
+        LatencyHistogram fanOut = metrics.getFanOut();
+        this.serieName = serieName;
+        this.fanOuts = fanOut.getCount();
+        this.fanOutMeanNanos = fanOut.getMeanNanos();
+        this.fanOutP99Nanos = fanOut.percentileNanos(0.99);
+        this.fanOutMaxNanos = fanOut.getMaxNanos();
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (Map.Entry<Observer, ObserverDeliveryStats> entry : metrics.getObserverStats().entrySet()) {
+            means.put(entry.getKey().toString(), entry.getValue().getMeanNanos());
+        }
+        this.meanDeliveryNanos = Collections.unmodifiableMap(means);
+        List<String> names = new ArrayList<>();
+        for (ObserverRegistry.Chunk chunk : slow) {
+            for (int i = 0; i < chunk.length; i++) {
+                names.add(chunk.items[i].toString());
+            }
+        }
+        this.slowObservers = Collections.unmodifiableList(names);
+    }
+
+    public String getSerieName() {
+        return serieName;
+    }
+
+    public long getFanOuts() {
+        return fanOuts;
+    }
+
+    public double getFanOutMeanNanos() {
+        return fanOutMeanNanos;
+    }
+
+    public long getFanOutP99Nanos() {
+        return fanOutP99Nanos;
+    }
+
+    public long getFanOutMaxNanos() {
+        return fanOutMaxNanos;
+    }
+
+    public Map<String, Double> getMeanDeliveryNanos() {
+        return meanDeliveryNanos;
+    }
+
+    public List<String> getSlowObservers() {
+        return slowObservers;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d notificaciones, media %.0fns, p99 %dns, máx %dns, suscriptores lentos %s",
+            serieName, fanOuts, fanOutMeanNanos, fanOutP99Nanos, fanOutMaxNanos, slowObservers);
+    }
+}
+
+// Registro de observadores en bloques de como mucho CHUNK_SIZE. Cada bloque publica un
+// arreglo y cuántas posiciones son válidas: un alta escribe tras la última posición publicada
+// y publica la nueva longitud sin copiar; una baja copia solo su bloque. Notificar toma una
+// instantánea por bloque sin bloqueos, y cada bloque es también la unidad de reparto.
+class ObserverRegistry {
+    static final int CHUNK_SIZE = 1024;
+
+    static final class Chunk {
+        final Observer[] items;
+        final int length;
+
+        Chunk(Observer[] items, int length) {
+            this.items = items;
+            this.length = length;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>(0);
+    private final Map<Observer, Integer> chunkOf = new HashMap<>();
+    private final BitSet withRoom = new BitSet();
+    private volatile int size;
+
+    public synchronized boolean add(Observer observer) {
+        if (chunkOf.containsKey(observer)) {
+            return false;
+        }
+        AtomicReferenceArray<Chunk> current = chunks;
+        int index = withRoom.nextSetBit(0);
+        if (index < 0) {
+            index = current.length();
+            AtomicReferenceArray<Chunk> grown = new AtomicReferenceArray<>(Math.max(4, index * 2));
+            for (int i = 0; i < index; i++) {
+                grown.set(i, current.get(i));
+            }
+            withRoom.set(index, grown.length());
+            chunks = grown;
+            current = grown;
+        }
+        Chunk chunk = current.get(index);
+        Observer[] items = chunk == null ? new Observer[4] : chunk.items;
+        int length = chunk == null ? 0 : chunk.length;
+        if (length == items.length) {
+            items = Arrays.copyOf(items, Math.min(CHUNK_SIZE, length * 2));
+        }
+        // Ninguna instantánea publicada llega a esta posición, así que se puede escribir en el sitio
+        items[length] = observer;
+        current.set(index, new Chunk(items, length + 1));
+        if (length + 1 == CHUNK_SIZE) {
+            withRoom.clear(index);
+        }
+        chunkOf.put(observer, index);
+        size++;
+        return true;
+    }
+
+    public synchronized boolean remove(Observer observer) {
+        Integer index = chunkOf.remove(observer);
+        if (index == null) {
+            return false;
+        }
+        AtomicReferenceArray<Chunk> current = chunks;
+        Chunk chunk = current.get(index);
+        int position = 0;
+        while (!chunk.items[position].equals(observer)) {
+            position++;
+        }
+        Observer[] items = new Observer[chunk.items.length];
+        System.arraycopy(chunk.items, 0, items, 0, position);
+        System.arraycopy(chunk.items, position + 1, items, position, chunk.length - position - 1);
+        current.set(index, new Chunk(items, chunk.length - 1));
+        withRoom.set(index);
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Bloques no vacíos en el momento de la llamada; las altas y bajas posteriores no los modifican.
+    public Chunk[] snapshot() {
+        AtomicReferenceArray<Chunk> current = chunks;
+        Chunk[] result = new Chunk[current.length()];
+        int count = 0;
+        for (int i = 0; i < result.length; i++) {
+            Chunk chunk = current.get(i);
+            if (chunk != null && chunk.length > 0) {
+                result[count++] = chunk;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
 }
 
 class Serie {
-    private String name;
-    private List<Observer> observers;
+    private final String name;
+    // Altas y bajas durante un lanzamiento no afectan a la notificación en curso.
+    private final ObserverRegistry observers = new ObserverRegistry();
+    // Observadores detectados como lentos: se les entrega aparte, por la cola asíncrona.
+    private final ObserverRegistry slowObservers = new ObserverRegistry();
+    // Altas, bajas y pasos al carril lento se hacen con este cerrojo, así una baja nunca
+    // queda a medias de un cambio de carril.
+    private final Object lanes = new Object();
+    private volatile Executor dispatcher;
+    private volatile Executor slowLane;
+    private volatile ReleaseBatcher batcher;
+    private volatile DeliveryMetrics metrics;
+
+    private interface Delivery {
+        void deliver(Observer observer);
+    }
 
     public Serie(String name) {
         this.name = name;
-        this.observers = new ArrayList<>();
     }
 
     public String getName() {
         return name;
     }
 
-    public void addObserver(Observer observer) {
-        observers.add(observer);
+    // Con un ejecutor, las notificaciones se reparten en bloques y se entregan en segundo plano.
+    public void setDispatcher(Executor dispatcher) {
+        this.dispatcher = dispatcher;
     }
 
-    public void removeObserver(Observer observer) {
-        observers.remove(observer);
+    public void enableBatching(int maxBatch, long windowMillis, int maxInFlight, ScheduledExecutorService scheduler) {
+        this.batcher = new ReleaseBatcher(this, maxBatch, windowMillis, maxInFlight, scheduler);
+    }
+
+    public void flushPendingEpisodes() {
+        ReleaseBatcher current = batcher;
+        if (current != null) {
+            current.flush();
+        }
+    }
+
+    public DeliveryMetrics enableMetrics() {
+        synchronized (lanes) {
+            if (metrics == null) {
+                DeliveryMetrics created = new DeliveryMetrics();
+                for (ObserverRegistry registry : new ObserverRegistry[] {observers, slowObservers}) {
+                    for (ObserverRegistry.Chunk chunk : registry.snapshot()) {
+                        for (int i = 0; i < chunk.length; i++) {
+                            created.track(chunk.items[i]);
+                        }
+                    }
+                }
+                metrics = created;
+            }
+            return metrics;
+        }
+    }
+
+    // Un observador cuya media reciente de entrega supera el umbral pasa a recibir sus
+    // avisos por slowLane y deja de retrasar al resto.
+    public void enableSlowSubscriberDetection(long thresholdNanos, int minSamples, Executor slowLane) {
+        enableMetrics().configureSlowDetection(thresholdNanos, minSamples);
+        this.slowLane = slowLane;
+    }
+
+    public DeliverySnapshot getMetricsSnapshot() {
+        DeliveryMetrics current = metrics;
+        return current == null ? null : new DeliverySnapshot(name, current, slowObservers.snapshot());
+    }
+
+    // Solo PlataformaStreaming da de alta y de baja, para que su índice y esta lista coincidan.
+    void addObserver(Observer observer) {
+        synchronized (lanes) {
+            if (observers.add(observer) && metrics != null) {
+                metrics.track(observer);
+            }
+        }
+    }
+
+    void removeObserver(Observer observer) {
+        synchronized (lanes) {
+            if (!observers.remove(observer)) {
+                slowObservers.remove(observer);
+            }
+            if (metrics != null) {
+                metrics.forget(observer);
+            }
+        }
+    }
+
+    public int getObserverCount() {
+        return observers.size() + slowObservers.size();
     }
 
     public void notifyObservers(String episode) {
-        for (Observer observer : observers) {
-            observer.update(this, episode);
+        fanOut(observer -> observer.update(this, episode), null);
+    }
+
+    // Entrega un lote de episodios; onComplete se ejecuta cuando todos los observadores lo recibieron.
+    public void notifyObservers(List<String> episodes, Runnable onComplete) {
+        notifyObservers(episodes, new DeliveryReceipt() {
+            @Override
+            public void failed(Observer observer) {
+            }
+
+            @Override
+            public void completed() {
+                onComplete.run();
+            }
+        });
+    }
+
+    public void notifyObservers(List<String> episodes, DeliveryReceipt receipt) {
+        fanOut(observer -> observer.updateBatch(this, episodes), receipt);
+    }
+
+    private void fanOut(Delivery delivery, DeliveryReceipt receipt) {
+        long start = System.nanoTime();
+        ObserverRegistry.Chunk[] fast = observers.snapshot();
+        ObserverRegistry.Chunk[] slow = slowObservers.snapshot();
+        Executor executor = dispatcher;
+        Executor lane = slowLane != null ? slowLane : executor;
+        int chunks = (executor == null ? 0 : fast.length) + (lane == null ? 0 : slow.length);
+        // Una unidad extra por la parte que entrega el propio hilo que publica
+        AtomicInteger remaining = receipt == null ? null : new AtomicInteger(chunks + 1);
+        try {
+            dispatch(fast, executor, delivery, remaining, receipt);
+            dispatch(slow, lane, delivery, remaining, receipt);
+        } finally {
+            complete(remaining, receipt);
+            DeliveryMetrics current = metrics;
+            if (current != null) {
+                current.recordFanOut(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void dispatch(ObserverRegistry.Chunk[] chunks, Executor executor, Delivery delivery, AtomicInteger remaining, DeliveryReceipt receipt) {
+        for (ObserverRegistry.Chunk chunk : chunks) {
+            if (executor == null) {
+                deliver(chunk, delivery, receipt);
+                continue;
+            }
+            Runnable task = () -> {
+                try {
+                    deliver(chunk, delivery, receipt);
+                } finally {
+                    complete(remaining, receipt);
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Con el ejecutor cerrado se entrega aquí mismo: ni se pierde el aviso ni queda
+                // sin contar el bloque, que dejaría al lote sin completar
+                task.run();
+            }
+        }
+    }
+
+    private static void complete(AtomicInteger remaining, DeliveryReceipt receipt) {
+        if (remaining != null && remaining.decrementAndGet() == 0) {
+            receipt.completed();
+        }
+    }
+
+    private void deliver(ObserverRegistry.Chunk chunk, Delivery delivery, DeliveryReceipt receipt) {
+        DeliveryMetrics current = metrics;
+        for (int i = 0; i < chunk.length; i++) {
+            Observer observer = chunk.items[i];
+            long start = current == null ? 0L : System.nanoTime();
+            try {
+                delivery.deliver(observer);
+            } catch (RuntimeException e) {
+                System.err.println("Error notificando a un suscriptor de " + name + ": " + e.getMessage());
+                if (receipt != null) {
+                    receipt.failed(observer);
+                }
+            }
+            if (current != null && current.recordDelivery(observer, System.nanoTime() - start) && slowLane != null) {
+                moveToSlowLane(observer);
+            }
+        }
+    }
+
+    private void moveToSlowLane(Observer observer) {
+        synchronized (lanes) {
+            if (observers.remove(observer)) {
+                slowObservers.add(observer);
+            }
         }
     }
 
     public void newEpisode(String episode) {
+        newEpisode(episode, null);
+    }
+
+    // El acuse llega cuando el episodio se entregó de verdad, también si va en lote o en segundo plano.
+    public void newEpisode(String episode, DeliveryReceipt receipt) {
         System.out.println("¡Nuevo episodio de " + name + ": " + episode + "!");
-        notifyObservers(episode);
+        ReleaseBatcher current = batcher;
+        if (current != null) {
+            current.add(episode, receipt);
+        } else {
+            fanOut(observer -> observer.update(this, episode), receipt);
+        }
     }
 }
 
@@ -48,22 +727,707 @@ class Usuario implements Observer {
     public void update(Serie serie, String episode) {
         System.out.println(name + ": ¡Nuevo episodio de " + serie.getName() + " disponible! (" + episode + ")");
     }
+
+    @Override
+    public void updateBatch(Serie serie, List<String> episodes) {
+        if (episodes.size() == 1) {
+            update(serie, episodes.get(0));
+            return;
+        }
+        System.out.println(name + ": ¡" + episodes.size() + " nuevos episodios de " + serie.getName()
+            + " disponibles! (" + String.join(", ", episodes) + ")");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
+
+// Conjunto de enteros con direccionamiento abierto: evita encajonar ids y ocupa ~4-8 bytes por elemento.
+class IntSet {
+    private static final int EMPTY = 0;
+
+    private int[] slots = new int[4];
+    private int size;
+
+    private static int slot(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    public boolean add(int value) {
+        if ((size + 1) * 4 > slots.length * 3) {
+            resize(slots.length * 2);
+        }
+        int key = value + 1;
+        int mask = slots.length - 1;
+        int i = slot(key, mask);
+        while (slots[i] != EMPTY) {
+            if (slots[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        slots[i] = key;
+        size++;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int key = value + 1;
+        int mask = slots.length - 1;
+        int gap = slot(key, mask);
+        while (slots[gap] != key) {
+            if (slots[gap] == EMPTY) {
+                return false;
+            }
+            gap = (gap + 1) & mask;
+        }
+        // Borrado por desplazamiento hacia atrás: no deja marcas de borrado en la tabla
+        int j = gap;
+        while (true) {
+            j = (j + 1) & mask;
+            int candidate = slots[j];
+            if (candidate == EMPTY) {
+                break;
+            }
+            int home = slot(candidate, mask);
+            boolean movable = j > gap ? (home <= gap || home > j) : (home <= gap && home > j);
+            if (movable) {
+                slots[gap] = candidate;
+                gap = j;
+            }
+        }
+        slots[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int key = value + 1;
+        int mask = slots.length - 1;
+        for (int i = slot(key, mask); slots[i] != EMPTY; i = (i + 1) & mask) {
+            if (slots[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] toArray() {
+        int[] values = new int[size];
+        int n = 0;
+        for (int key : slots) {
+            if (key != EMPTY) {
+                values[n++] = key - 1;
+            }
+        }
+        return values;
+    }
+
+    private void resize(int capacity) {
+        int[] old = slots;
+        slots = new int[capacity];
+        size = 0;
+        for (int key : old) {
+            if (key != EMPTY) {
+                add(key - 1);
+            }
+        }
+    }
+}
+
+// Asigna ids enteros densos a objetos para poder indexarlos con arreglos de primitivos.
+// Los ids liberados se reutilizan; quien llama evita liberar un valor mientras otro hilo lo registra.
+class IdRegistry<T> {
+    private final ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    private volatile Object[] values = new Object[16];
+    private int next;
+
+    public int idOf(T value) {
+        Integer id = ids.get(value);
+        return id != null ? id : register(value);
+    }
+
+    public int find(T value) {
+        Integer id = ids.get(value);
+        return id != null ? id : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        return (T) values[id];
+    }
+
+    public synchronized void release(T value) {
+        Integer id = ids.remove(value);
+        if (id != null) {
+            Object[] current = values;
+            current[id] = null;
+            values = current;
+            free.push(id);
+        }
+    }
+
+    // Altas y bajas toman solo este monitor y luego el mapa, nunca al revés: registrar
+    // dentro de computeIfAbsent cruzaría el cerrojo del mapa con el de release.
+    private synchronized int register(T value) {
+        Integer existing = ids.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        int id = free.isEmpty() ? next++ : free.pop();
+        Object[] current = values;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = value;
+        values = current;
+        ids.put(value, id);
+        return id;
+    }
+}
+
+// Índice de suscripciones en ambos sentidos (serie -> usuarios y usuario -> series),
+// repartido en fragmentos con su propio cerrojo para que altas, bajas y lanzamientos de
+// series distintas no compitan entre sí. Cada cambio se hace con el cerrojo del fragmento de
+// la serie, que también cubre la otra dirección y el aviso onChange; un lector concurrente
+// de la dirección usuario -> series puede ver el cambio un instante antes que el resto.
+class SubscriptionIndex {
+    private static final int SHARD_BITS = 6;
+    private static final int SHARD_MASK = (1 << SHARD_BITS) - 1;
+
+    private final Shard[] seriesShards = newShards();
+    private final Shard[] userShards = newShards();
+
+    private static final class Shard {
+        private IntSet[] sets = new IntSet[4];
+
+        synchronized boolean add(int local, int value) {
+            if (local >= sets.length) {
+                sets = Arrays.copyOf(sets, Math.max(local + 1, sets.length * 2));
+            }
+            if (sets[local] == null) {
+                sets[local] = new IntSet();
+            }
+            return sets[local].add(value);
+        }
+
+        synchronized boolean remove(int local, int value) {
+            return local < sets.length && sets[local] != null && sets[local].remove(value);
+        }
+
+        synchronized int[] members(int local) {
+            return local < sets.length && sets[local] != null ? sets[local].toArray() : new int[0];
+        }
+
+        synchronized boolean contains(int local, int value) {
+            return local < sets.length && sets[local] != null && sets[local].contains(value);
+        }
+
+        synchronized int count(int local) {
+            return local < sets.length && sets[local] != null ? sets[local].size() : 0;
+        }
+    }
+
+    private static Shard[] newShards() {
+        Shard[] shards = new Shard[1 << SHARD_BITS];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        return shards;
+    }
+
+    public boolean subscribe(int serieId, int userId, Runnable onChange) {
+        Shard shard = seriesShards[serieId & SHARD_MASK];
+        synchronized (shard) {
+            if (!shard.add(serieId >>> SHARD_BITS, userId)) {
+                return false;
+            }
+            userShards[userId & SHARD_MASK].add(userId >>> SHARD_BITS, serieId);
+            onChange.run();
+            return true;
+        }
+    }
+
+    public boolean unsubscribe(int serieId, int userId, Runnable onChange) {
+        Shard shard = seriesShards[serieId & SHARD_MASK];
+        synchronized (shard) {
+            if (!shard.remove(serieId >>> SHARD_BITS, userId)) {
+                return false;
+            }
+            userShards[userId & SHARD_MASK].remove(userId >>> SHARD_BITS, serieId);
+            onChange.run();
+            return true;
+        }
+    }
+
+    public int[] subscribersOf(int serieId) {
+        return seriesShards[serieId & SHARD_MASK].members(serieId >>> SHARD_BITS);
+    }
+
+    public int[] seriesOf(int userId) {
+        return userShards[userId & SHARD_MASK].members(userId >>> SHARD_BITS);
+    }
+
+    public boolean isSubscribed(int serieId, int userId) {
+        return seriesShards[serieId & SHARD_MASK].contains(serieId >>> SHARD_BITS, userId);
+    }
+
+    public int subscriberCount(int serieId) {
+        return seriesShards[serieId & SHARD_MASK].count(serieId >>> SHARD_BITS);
+    }
+
+    public int seriesCount(int userId) {
+        return userShards[userId & SHARD_MASK].count(userId >>> SHARD_BITS);
+    }
+}
+
+interface ReleaseConsumer {
+    void onRelease(long offset, String serieName, String episode);
+}
+
+// Registro de lanzamientos solo-anexar en segmentos de tamaño fijo mapeados en memoria.
+// Cada registro es [longitud][longitud del nombre][nombre][episodio] en UTF-8; una longitud 0
+// marca el final de los datos escritos en el segmento. Los desplazamientos son globales
+// (segmento * tamaño + posición). Cada serie guarda hasta dónde se entregó en vivo, y un
+// consumidor solo guarda posición en las series en las que se quedó atrás (se dio de baja o
+// falló una entrega); mientras está al día no cuesta nada por lanzamiento.
+// El tamaño de segmento se guarda en log.properties: reabrir con otro tamaño daría
+// desplazamientos sin sentido, así que open lo rechaza.
+class ReleaseLog implements AutoCloseable {
+    private static final String OFFSETS_FILE = "offsets.properties";
+    private static final String META_FILE = "log.properties";
+    private static final String WATERMARK_KEY = "watermark.";
+    private static final String HELD_KEY = "held.";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Map<String, Long> watermarks = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Long>> held = new ConcurrentHashMap<>();
+    private MappedByteBuffer current;
+
+    private ReleaseLog(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    public static ReleaseLog open(Path directory, int segmentSize) throws IOException {
+        Files.createDirectories(directory);
+        ReleaseLog log = new ReleaseLog(directory, segmentSize);
+        log.checkSegmentSize();
+        while (Files.exists(log.segmentPath(log.segments.size()))) {
+            log.segments.add(log.map(log.segments.size()));
+        }
+        if (log.segments.isEmpty()) {
+            log.segments.add(log.map(0));
+        }
+        log.current = log.segments.get(log.segments.size() - 1);
+        log.current.position(log.endOfData(log.current));
+        log.loadOffsets();
+        return log;
+    }
+
+    private void checkSegmentSize() throws IOException {
+        Path file = directory.resolve(META_FILE);
+        long stored;
+        if (Files.exists(file)) {
+            Properties properties = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            stored = Long.parseLong(properties.getProperty("segmentSize"));
+        } else if (Files.exists(segmentPath(0))) {
+            // Registro anterior a log.properties: los segmentos miden exactamente su tamaño
+            stored = Files.size(segmentPath(0));
+        } else {
+            stored = segmentSize;
+        }
+        if (stored != segmentSize) {
+            throw new IllegalArgumentException("El registro en " + directory + " usa segmentos de "
+                + stored + " bytes, no de " + segmentSize);
+        }
+        if (!Files.exists(file)) {
+            Properties properties = new Properties();
+            properties.setProperty("segmentSize", Integer.toString(segmentSize));
+            try (OutputStream out = Files.newOutputStream(file)) {
+                properties.store(out, null);
+            }
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("releases-%05d.log", index));
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private int endOfData(MappedByteBuffer segment) {
+        int position = 0;
+        while (position + 4 <= segmentSize) {
+            int length = segment.getInt(position);
+            if (length <= 0) {
+                break;
+            }
+            position += 4 + length;
+        }
+        return position;
+    }
+
+    public synchronized long append(String serieName, String episode) throws IOException {
+        byte[] serie = serieName.getBytes(StandardCharsets.UTF_8);
+        byte[] text = episode.getBytes(StandardCharsets.UTF_8);
+        int length = 2 + serie.length + text.length;
+        if (serie.length > Short.MAX_VALUE || 4 + length > segmentSize) {
+            throw new IllegalArgumentException("El registro no cabe en un segmento de " + segmentSize + " bytes");
+        }
+        if (current.remaining() < 4 + length) {
+            current.force();
+            current = map(segments.size());
+            segments.add(current);
+        }
+        long offset = (long) (segments.size() - 1) * segmentSize + current.position();
+        int start = current.position();
+        current.position(start + 4);
+        current.putShort((short) serie.length).put(serie).put(text);
+        // La longitud se escribe al final para que un lector nunca vea un registro a medias
+        current.putInt(start, length);
+        return offset;
+    }
+
+    public synchronized long endOffset() {
+        return (long) (segments.size() - 1) * segmentSize + current.position();
+    }
+
+    // Recorre los registros desde un desplazamiento y devuelve el desplazamiento siguiente al último leído.
+    public long replay(long fromOffset, ReleaseConsumer consumer) {
+        long end = endOffset();
+        long offset = fromOffset;
+        while (offset < end) {
+            int segmentIndex = (int) (offset / segmentSize);
+            int position = (int) (offset % segmentSize);
+            MappedByteBuffer segment;
+            synchronized (this) {
+                segment = segments.get(segmentIndex);
+            }
+            int length = position + 4 <= segmentSize ? segment.getInt(position) : 0;
+            if (length <= 0) {
+                offset = (long) (segmentIndex + 1) * segmentSize;
+                continue;
+            }
+            int serieLength = segment.getShort(position + 4);
+            byte[] serie = new byte[serieLength];
+            byte[] text = new byte[length - 2 - serieLength];
+            segment.get(position + 6, serie);
+            segment.get(position + 6 + serieLength, text);
+            consumer.onRelease(offset, new String(serie, StandardCharsets.UTF_8), new String(text, StandardCharsets.UTF_8));
+            offset += 4 + length;
+        }
+        return offset;
+    }
+
+    // Desplazamiento del registro siguiente al que empieza en offset.
+    public long offsetAfter(long offset) {
+        MappedByteBuffer segment;
+        synchronized (this) {
+            segment = segments.get((int) (offset / segmentSize));
+        }
+        return offset + 4 + segment.getInt((int) (offset % segmentSize));
+    }
+
+    // Todo lo anterior a la marca de la serie ya llegó a sus suscriptores. Una serie nueva
+    // empieza al final del registro.
+    public long watermark(String serieName) {
+        Long watermark = watermarks.get(serieName);
+        if (watermark == null) {
+            watermarks.putIfAbsent(serieName, endOffset());
+            watermark = watermarks.get(serieName);
+        }
+        return watermark;
+    }
+
+    public void advanceWatermark(String serieName, long offset) {
+        watermarks.merge(serieName, offset, Math::max);
+    }
+
+    // Deja al consumidor parado en offset para esa serie (nunca hacia delante) hasta que se ponga al día.
+    public void hold(String consumerId, String serieName, long offset) {
+        held.computeIfAbsent(consumerId, id -> new ConcurrentHashMap<>()).merge(serieName, offset, Math::min);
+    }
+
+    public Map<String, Long> heldPositions(String consumerId) {
+        Map<String, Long> positions = held.get(consumerId);
+        return positions == null ? Collections.emptyMap() : new HashMap<>(positions);
+    }
+
+    // Suelta la posición tras ponerse al día, salvo que otra entrega fallida la haya retrasado entretanto.
+    public void resume(String consumerId, String serieName, long offset) {
+        held.computeIfPresent(consumerId, (id, positions) -> {
+            positions.remove(serieName, offset);
+            return positions.isEmpty() ? null : positions;
+        });
+    }
+
+    public synchronized void commit() throws IOException {
+        storeOffsets();
+    }
+
+    private void storeOffsets() throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> entry : watermarks.entrySet()) {
+            properties.setProperty(WATERMARK_KEY + entry.getKey(), Long.toString(entry.getValue()));
+        }
+        for (Map.Entry<String, Map<String, Long>> consumer : held.entrySet()) {
+            for (Map.Entry<String, Long> entry : consumer.getValue().entrySet()) {
+                properties.setProperty(HELD_KEY + consumer.getKey() + '\t' + entry.getKey(), Long.toString(entry.getValue()));
+            }
+        }
+        Path temporary = directory.resolve(OFFSETS_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            properties.store(out, null);
+        }
+        Files.move(temporary, directory.resolve(OFFSETS_FILE), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadOffsets() throws IOException {
+        Path file = directory.resolve(OFFSETS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            long offset = Long.parseLong(properties.getProperty(key));
+            if (key.startsWith(WATERMARK_KEY)) {
+                watermarks.put(key.substring(WATERMARK_KEY.length()), offset);
+            } else if (key.startsWith(HELD_KEY)) {
+                int separator = key.indexOf('\t');
+                hold(key.substring(HELD_KEY.length(), separator), key.substring(separator + 1), offset);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        current.force();
+        try {
+            storeOffsets();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
 
 class PlataformaStreaming {
-    private Map<String, Serie> series;
+    private final Map<String, Serie> series = new ConcurrentHashMap<>();
+    private final IdRegistry<String> serieIds = new IdRegistry<>();
+    private final IdRegistry<Observer> userIds = new IdRegistry<>();
+    private final SubscriptionIndex subscriptions = new SubscriptionIndex();
+    // Cerrojos por usuario: el id de un usuario no se libera mientras otro hilo lo está usando.
+    private final Object[] userLocks = new Object[64];
+    // Consumidores del registro: se quedan atrás en una serie al darse de baja o si falla una entrega.
+    private final Map<Observer, String> consumers = new ConcurrentHashMap<>();
+    // Lanzamientos registrados de cada serie cuya entrega aún no terminó, en orden de registro.
+    private final Map<String, ArrayDeque<Release>> pendingReleases = new ConcurrentHashMap<>();
+    private volatile ReleaseLog releaseLog;
+
+    // Acuse de un lanzamiento registrado. La marca de la serie solo avanza hasta el primer
+    // lanzamiento que siga en entrega, aunque los acuses lleguen desordenados.
+    private final class Release implements DeliveryReceipt {
+        private final ReleaseLog log;
+        private final ArrayDeque<Release> queue;
+        private final String serieName;
+        private final long offset;
+        private final long next;
+        private boolean done;
+
+        Release(ReleaseLog log, ArrayDeque<Release> queue, String serieName, long offset, long next) {
+            this.log = log;
+            this.queue = queue;
+            this.serieName = serieName;
+            this.offset = offset;
+            this.next = next;
+        }
+
+        @Override
+        public void failed(Observer observer) {
+            String consumerId = consumers.get(observer);
+            if (consumerId != null) {
+                log.hold(consumerId, serieName, offset);
+            }
+        }
+
+        @Override
+        public void completed() {
+            long watermark = -1;
+            synchronized (queue) {
+                done = true;
+                while (!queue.isEmpty() && queue.peek().done) {
+                    watermark = queue.poll().next;
+                }
+            }
+            if (watermark >= 0) {
+                log.advanceWatermark(serieName, watermark);
+            }
+        }
+    }
 
     public PlataformaStreaming() {
-        this.series = new HashMap<>();
+        for (int i = 0; i < userLocks.length; i++) {
+            userLocks[i] = new Object();
+        }
+    }
+
+    private Object lockFor(Observer observer) {
+        int hash = observer.hashCode() * 0x9E3779B9;
+        return userLocks[(hash ^ (hash >>> 16)) & (userLocks.length - 1)];
+    }
+
+    public void setReleaseLog(ReleaseLog releaseLog) {
+        this.releaseLog = releaseLog;
     }
 
     public void addSerie(Serie serie) {
         series.put(serie.getName(), serie);
+        serieIds.idOf(serie.getName());
+    }
+
+    public boolean subscribe(String serieName, Observer observer) {
+        Serie serie = series.get(serieName);
+        if (serie == null) {
+            System.out.println("Error: La serie '" + serieName + "' no existe en la plataforma.");
+            return false;
+        }
+        synchronized (lockFor(observer)) {
+            return subscriptions.subscribe(serieIds.idOf(serieName), userIds.idOf(observer), () -> serie.addObserver(observer));
+        }
+    }
+
+    // Al irse la última suscripción del usuario se libera su id, y con él la referencia al observador.
+    public boolean unsubscribe(String serieName, Observer observer) {
+        Serie serie = series.get(serieName);
+        int serieId = serieIds.find(serieName);
+        if (serie == null || serieId < 0) {
+            return false;
+        }
+        synchronized (lockFor(observer)) {
+            int userId = userIds.find(observer);
+            if (userId < 0 || !subscriptions.unsubscribe(serieId, userId, () -> serie.removeObserver(observer))) {
+                return false;
+            }
+            if (subscriptions.seriesCount(userId) == 0) {
+                userIds.release(observer);
+            }
+            ReleaseLog log = releaseLog;
+            String consumerId = consumers.get(observer);
+            if (log != null && consumerId != null) {
+                log.hold(consumerId, serieName, log.watermark(serieName));
+            }
+            return true;
+        }
+    }
+
+    private boolean isSubscribed(int serieId, Observer observer) {
+        synchronized (lockFor(observer)) {
+            int userId = userIds.find(observer);
+            return userId >= 0 && subscriptions.isSubscribed(serieId, userId);
+        }
+    }
+
+    public List<String> getSeriesFollowedBy(Observer observer) {
+        int[] ids;
+        synchronized (lockFor(observer)) {
+            int userId = userIds.find(observer);
+            if (userId < 0) {
+                return Collections.emptyList();
+            }
+            ids = subscriptions.seriesOf(userId);
+        }
+        List<String> names = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            names.add(serieIds.get(id));
+        }
+        return names;
+    }
+
+    // Asocia el observador a un consumidor del registro. Un consumidor nuevo está al día;
+    // catchUp solo reentrega lo que se perdió mientras no estaba suscrito o le falló una entrega.
+    public void registerConsumer(String consumerId, Observer observer) {
+        consumers.put(observer, consumerId);
+    }
+
+    // Reentrega al observador, en cada serie a la que está suscrito, lo que quedó desde su posición.
+    public void catchUp(String consumerId, Observer observer) {
+        ReleaseLog log = releaseLog;
+        if (log == null) {
+            return;
+        }
+        consumers.put(observer, consumerId);
+        Map<String, Long> positions = log.heldPositions(consumerId);
+        positions.keySet().removeIf(serieName -> {
+            int serieId = serieIds.find(serieName);
+            return serieId < 0 || !isSubscribed(serieId, observer);
+        });
+        if (positions.isEmpty()) {
+            return;
+        }
+        log.replay(Collections.min(positions.values()), (offset, serieName, episode) -> {
+            Long position = positions.get(serieName);
+            Serie serie = series.get(serieName);
+            if (position != null && offset >= position && serie != null) {
+                observer.update(serie, episode);
+            }
+        });
+        for (Map.Entry<String, Long> position : positions.entrySet()) {
+            log.resume(consumerId, position.getKey(), position.getValue());
+        }
+        try {
+            log.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getSubscriberCount(String serieName) {
+        int serieId = serieIds.find(serieName);
+        return serieId < 0 ? 0 : subscriptions.subscriberCount(serieId);
     }
 
     public void releaseEpisode(String serieName, String episode) {
-        if (series.containsKey(serieName)) {
-            series.get(serieName).newEpisode(episode);
+        Serie serie = series.get(serieName);
+        if (serie != null) {
+            ReleaseLog log = releaseLog;
+            Release release = null;
+            if (log != null) {
+                ArrayDeque<Release> queue = pendingReleases.computeIfAbsent(serieName, name -> new ArrayDeque<>());
+                synchronized (queue) {
+                    try {
+                        // La marca se fija antes de anexar: una serie nueva empieza en este lanzamiento
+                        log.watermark(serieName);
+                        long offset = log.append(serieName, episode);
+                        release = new Release(log, queue, serieName, offset, log.offsetAfter(offset));
+                        queue.add(release);
+                    } catch (IOException e) {
+                        System.out.println("Error: no se pudo registrar el lanzamiento de '" + serieName + "': " + e.getMessage());
+                    }
+                }
+            }
+            serie.newEpisode(episode, release);
         } else {
             System.out.println("Error: La serie '" + serieName + "' no existe en la plataforma.");
         }
@@ -84,13 +1448,90 @@ public class Main {
         Usuario usuario2 = new Usuario("Bob");
         Usuario usuario3 = new Usuario("Charlie");
 
-        serie1.addObserver(usuario1);
-        serie1.addObserver(usuario2);
-        serie2.addObserver(usuario3);
+        plataforma.subscribe("Breaking Bad", usuario1);
+        plataforma.subscribe("Breaking Bad", usuario2);
+        plataforma.subscribe("Game of Thrones", usuario3);
 
         System.out.println("=== Lanzamiento de nuevos episodios ===");
         plataforma.releaseEpisode("Breaking Bad", "Episodio 5x01");
         plataforma.releaseEpisode("Game of Thrones", "Episodio 8x03");
         plataforma.releaseEpisode("Stranger Things", "Episodio 4x01");  
+
+        System.out.println("\n=== Lanzamiento con notificación asíncrona ===");
+        ExecutorService dispatcher = NotificationDispatchers.bounded(2, 64);
+        serie2.setDispatcher(dispatcher);
+        plataforma.subscribe("Game of Thrones", usuario1);
+        plataforma.releaseEpisode("Game of Thrones", "Episodio 8x04");
+        dispatcher.shutdown();
+        try {
+            dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        serie2.setDispatcher(null);
+
+        System.out.println("\n=== Lanzamiento de temporada completa (notificaciones agrupadas) ===");
+        serie1.enableBatching(3, 200, 4, NotificationDispatchers.scheduler());
+        plataforma.releaseEpisode("Breaking Bad", "Episodio 6x01");
+        plataforma.releaseEpisode("Breaking Bad", "Episodio 6x02");
+        plataforma.releaseEpisode("Breaking Bad", "Episodio 6x03");
+        plataforma.releaseEpisode("Breaking Bad", "Episodio 6x04");
+        serie1.flushPendingEpisodes();
+
+        System.out.println("\n=== Registro de lanzamientos y puesta al día ===");
+        try {
+            Path logDirectory = Files.createTempDirectory("lanzamientos");
+            try (ReleaseLog log = ReleaseLog.open(logDirectory, 1 << 20)) {
+                plataforma.setReleaseLog(log);
+                plataforma.registerConsumer("alice", usuario1);
+                plataforma.registerConsumer("charlie", usuario3);
+                plataforma.unsubscribe("Game of Thrones", usuario3);
+                plataforma.releaseEpisode("Game of Thrones", "Episodio 8x05");
+                plataforma.releaseEpisode("Game of Thrones", "Episodio 8x06");
+                plataforma.subscribe("Game of Thrones", usuario3);
+                System.out.println("Charlie estaba desconectado y se pone al día:");
+                plataforma.catchUp("charlie", usuario3);
+                System.out.println("Alice estuvo conectada y no recibe nada repetido:");
+                plataforma.catchUp("alice", usuario1);
+                plataforma.setReleaseLog(null);
+            }
+        } catch (IOException e) {
+            System.out.println("Error: no se pudo abrir el registro de lanzamientos: " + e.getMessage());
+        }
+
+        System.out.println("\n=== Métricas de entrega y suscriptores lentos ===");
+        Serie serie3 = new Serie("The Office");
+        plataforma.addSerie(serie3);
+        ExecutorService slowLane = NotificationDispatchers.bounded(1, 16);
+        serie3.enableSlowSubscriberDetection(TimeUnit.MILLISECONDS.toNanos(2), 1, slowLane);
+        plataforma.subscribe("The Office", usuario2);
+        plataforma.subscribe("The Office", new Observer() {
+            @Override
+            public void update(Serie serie, String episode) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "Dispositivo lento";
+            }
+        });
+        plataforma.releaseEpisode("The Office", "Episodio 1x01");
+        plataforma.releaseEpisode("The Office", "Episodio 1x02");
+        slowLane.shutdown();
+        try {
+            slowLane.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(serie3.getMetricsSnapshot());
+
+        System.out.println("\n=== Suscripciones ===");
+        System.out.println("Alice sigue: " + plataforma.getSeriesFollowedBy(usuario1));
+        System.out.println("Suscriptores de Breaking Bad: " + plataforma.getSubscriberCount("Breaking Bad"));
     }
 }
@@ -1,30 +1,70 @@
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 class Computer {
-    private final List<Component> components = new ArrayList<>();
+    private Component[] components;
+    private int count;
+    private double totalPrice;
+    
+    public Computer() {
+        this(ComputerBuilder.PARTS);
+    }
+    
+    public Computer(int capacity) {
+        components = new Component[capacity];
+    }
     
     public void add(Component component) {
-        components.add(component);
+        if (count == components.length) {
+            components = Arrays.copyOf(components, Math.max(1, count * 2));
+        }
+        components[count++] = component;
+        totalPrice += component.getPrice();
     }
     
-    public double getTotalPrice() {
-        double total = 0;
-        for (Component component : components) {
-            total += component.getPrice();
+    // Vacía la computadora conservando el arreglo, para reutilizarla en otra construcción.
+    void clear() {
+        Arrays.fill(components, 0, count, null);
+        count = 0;
+        totalPrice = 0;
+    }
+    
+    // Copia las piezas y el total de una plantilla sobre esta computadora.
+    void load(Component[] parts, double price) {
+        if (parts.length > components.length) {
+            components = new Component[parts.length];
         }
-        return total;
+        System.arraycopy(parts, 0, components, 0, parts.length);
+        if (count > parts.length) {
+            Arrays.fill(components, parts.length, count, null);
+        }
+        count = parts.length;
+        totalPrice = price;
+    }
+    
+    Component[] parts() {
+        return Arrays.copyOf(components, count);
+    }
+    
+    public double getTotalPrice() {
+        return totalPrice;
     }
     
     @Override
     public String toString() {
         StringBuilder text = new StringBuilder("Computadora: \n");
-        for (Component component : components) {
-            text.append(component.toString()).append("\n");
+        for (int i = 0; i < count; i++) {
+            text.append(components[i].toString()).append("\n");
         }
         text.append(String.format("Precio total: $%.2f", getTotalPrice()));
         return text.toString();
     }
 }
 
-class Component {
+// Inmutable: cada builder comparte la misma instancia de cada pieza.
+final class Component {
     private final String name;
     private final double price;
     
@@ -44,7 +84,10 @@ class Component {
 }
 
 abstract class ComputerBuilder {
-    protected Computer computer = new Computer();
+    static final int PARTS = 6;
+    
+    protected Computer computer = new Computer(PARTS);
+    private boolean reuseComputer;
     
     public abstract void addProcessor();
     public abstract void addMotherboard();
@@ -53,8 +96,26 @@ abstract class ComputerBuilder {
     public abstract void addGraphicsCard();
     public abstract void addPowerSupply();
     
+    // Con reutilización, reset() vacía la misma computadora en lugar de crear otra:
+    // la obtenida con getComputer() solo es válida hasta la siguiente construcción.
+    public void setReuseComputer(boolean reuseComputer) {
+        this.reuseComputer = reuseComputer;
+    }
+    
     public void reset() {
-        computer = new Computer();
+        if (reuseComputer) {
+            computer.clear();
+        } else {
+            computer = new Computer(PARTS);
+        }
+    }
+    
+    public void load(ComputerTemplate template) {
+        if (reuseComputer) {
+            template.stampInto(computer);
+        } else {
+            computer = template.newComputer();
+        }
     }
     
     public Computer getComputer() {
@@ -63,92 +124,173 @@ abstract class ComputerBuilder {
 }
 
 class GamingComputerBuilder extends ComputerBuilder {
+    private static final Component PROCESSOR = new Component("AMD Ryzen 9 5900X", 499.99);
+    private static final Component MOTHERBOARD = new Component("ASUS ROG Strix X570-E Gaming", 329.99);
+    private static final Component MEMORY = new Component("32GB DDR4 3600MHz RGB", 189.99);
+    private static final Component STORAGE = new Component("2TB NVMe SSD", 249.99);
+    private static final Component GRAPHICS_CARD = new Component("NVIDIA RTX 4080", 899.99);
+    private static final Component POWER_SUPPLY = new Component("850W 80+ Gold", 149.99);
+    
     @Override
     public void addProcessor() {
-        computer.add(new Component("AMD Ryzen 9 5900X", 499.99));
+        computer.add(PROCESSOR);
     }
     
     @Override
     public void addMotherboard() {
-        computer.add(new Component("ASUS ROG Strix X570-E Gaming", 329.99));
+        computer.add(MOTHERBOARD);
     }
     
     @Override
     public void addMemory() {
-        computer.add(new Component("32GB DDR4 3600MHz RGB", 189.99));
+        computer.add(MEMORY);
     }
     
     @Override
     public void addStorage() {
-        computer.add(new Component("2TB NVMe SSD", 249.99));
+        computer.add(STORAGE);
     }
     
     @Override
     public void addGraphicsCard() {
-        computer.add(new Component("NVIDIA RTX 4080", 899.99));
+        computer.add(GRAPHICS_CARD);
     }
     
     @Override
     public void addPowerSupply() {
-        computer.add(new Component("850W 80+ Gold", 149.99));
+        computer.add(POWER_SUPPLY);
     }
 }
 
 class OfficeComputerBuilder extends ComputerBuilder {
+    private static final Component PROCESSOR = new Component("Intel Core i5-12400", 199.99);
+    private static final Component MOTHERBOARD = new Component("ASUS Prime B660M-A", 129.99);
+    private static final Component MEMORY = new Component("16GB DDR4 3200MHz", 79.99);
+    private static final Component STORAGE = new Component("512GB NVMe SSD", 89.99);
+    private static final Component GRAPHICS_CARD = new Component("Intel UHD Graphics 730 (Integrada)", 0.00);
+    private static final Component POWER_SUPPLY = new Component("550W 80+ Bronze", 69.99);
+    
     @Override
     public void addProcessor() {
-        computer.add(new Component("Intel Core i5-12400", 199.99));
+        computer.add(PROCESSOR);
     }
     
     @Override
     public void addMotherboard() {
-        computer.add(new Component("ASUS Prime B660M-A", 129.99));
+        computer.add(MOTHERBOARD);
     }
     
     @Override
     public void addMemory() {
-        computer.add(new Component("16GB DDR4 3200MHz", 79.99));
+        computer.add(MEMORY);
     }
     
     @Override
     public void addStorage() {
-        computer.add(new Component("512GB NVMe SSD", 89.99));
+        computer.add(STORAGE);
     }
     
     @Override
     public void addGraphicsCard() {
-        computer.add(new Component("Intel UHD Graphics 730 (Integrada)", 0.00));
+        computer.add(GRAPHICS_CARD);
     }
     
     @Override
     public void addPowerSupply() {
-        computer.add(new Component("550W 80+ Bronze", 69.99));
+        computer.add(POWER_SUPPLY);
+    }
+}
+
+enum Recipe {
+    FULL {
+        @Override
+        void apply(ComputerBuilder builder) {
+            builder.addProcessor();
+            builder.addMotherboard();
+            builder.addMemory();
+            builder.addStorage();
+            builder.addGraphicsCard();
+            builder.addPowerSupply();
+        }
+    },
+    BASIC {
+        @Override
+        void apply(ComputerBuilder builder) {
+            builder.addProcessor();
+            builder.addMotherboard();
+            builder.addMemory();
+            builder.addStorage();
+        }
+    };
+    
+    abstract void apply(ComputerBuilder builder);
+}
+
+// Resultado inmutable de aplicar una receta con un tipo de builder.
+final class ComputerTemplate {
+    private final Component[] parts;
+    private final double totalPrice;
+    
+    ComputerTemplate(Computer computer) {
+        this.parts = computer.parts();
+        this.totalPrice = computer.getTotalPrice();
+    }
+    
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+    
+    public Computer newComputer() {
+        Computer computer = new Computer(parts.length);
+        stampInto(computer);
+        return computer;
+    }
+    
+    void stampInto(Computer computer) {
+        computer.load(parts, totalPrice);
     }
 }
 
 class ComputerDirector {
+    // Cada receta se compila una vez por tipo de builder: se asume que el resultado
+    // depende solo de la clase del builder, como en los builders de este archivo.
+    private static final Map<TemplateKey, ComputerTemplate> TEMPLATES = new ConcurrentHashMap<>();
+    
+    private record TemplateKey(Class<? extends ComputerBuilder> builderType, Recipe recipe) {
+    }
+    
     private final ComputerBuilder builder;
+    private final Map<Recipe, ComputerTemplate> compiled = new EnumMap<>(Recipe.class);
     
     public ComputerDirector(ComputerBuilder builder) {
         this.builder = builder;
     }
     
     public void constructFullComputer() {
-        builder.reset();
-        builder.addProcessor();
-        builder.addMotherboard();
-        builder.addMemory();
-        builder.addStorage();
-        builder.addGraphicsCard();
-        builder.addPowerSupply();
+        construct(Recipe.FULL);
     }
     
     public void constructBasicComputer() {
+        construct(Recipe.BASIC);
+    }
+    
+    public void construct(Recipe recipe) {
+        builder.load(getTemplate(recipe));
+    }
+    
+    public ComputerTemplate getTemplate(Recipe recipe) {
+        ComputerTemplate template = compiled.get(recipe);
+        if (template == null) {
+            template = TEMPLATES.computeIfAbsent(new TemplateKey(builder.getClass(), recipe), key -> compile(recipe));
+            compiled.put(recipe, template);
+        }
+        return template;
+    }
+    
+    private ComputerTemplate compile(Recipe recipe) {
         builder.reset();
-        builder.addProcessor();
-        builder.addMotherboard();
-        builder.addMemory();
-        builder.addStorage();
+        recipe.apply(builder);
+        return new ComputerTemplate(builder.getComputer());
     }
 }
 
@@ -168,5 +310,17 @@ public class ComputerBuilderDemo {
         Computer officeComputer = officeBuilder.getComputer();
         System.out.println("=== Computadora de Oficina ===");
         System.out.println(officeComputer);
+        System.out.println();
+        
+        gamingBuilder.setReuseComputer(true);
+        double quoted = 0;
+        for (int i = 0; i < 100_000; i++) {
+            gamingDirector.constructFullComputer();
+            quoted += gamingBuilder.getComputer().getTotalPrice();
+        }
+        System.out.println("=== Cotizaciones ===");
+        System.out.println(String.format("100000 cotizaciones gaming: $%.2f", quoted));
+        System.out.println(String.format("Oficina básica según plantilla: $%.2f",
+            new ComputerDirector(new OfficeComputerBuilder()).getTemplate(Recipe.BASIC).getTotalPrice()));
     }
 }
@@ -13,7 +13,11 @@ abstract class IAConfig implements Cloneable {
         this.parametrosAvanzados = new HashMap<>();
     }
     
-    public abstract IAConfig clone();
+    // Copia superficial; cada subclase copia después sus colecciones.
+    @Override
+    protected IAConfig clone() throws CloneNotSupportedException {
+        return (IAConfig) super.clone();
+    }
     
     public void añadirParametro(String clave, Object valor) {
         this.parametrosAvanzados.put(clave, valor);
@@ -32,9 +36,9 @@ abstract class IAConfig implements Cloneable {
 }
 
 class NPCEnemigo extends IAConfig {
-    private String tipoArma;
-    private double velocidadAtaque;
-    private List<String> patronesMovimiento;
+    String tipoArma;
+    double velocidadAtaque;
+    List<String> patronesMovimiento;
     
     public NPCEnemigo(String nombre, int dificultad, String comportamiento, 
                      String tipoArma, double velocidadAtaque) {
@@ -71,8 +75,8 @@ class NPCEnemigo extends IAConfig {
 }
 
 class Compañero extends IAConfig {
-    private String especialidad;
-    private int lealtad; // 0-100
+    String especialidad;
+    int lealtad; // 0-100
     private List<String> habilidadesEspeciales;
     private List<Map.Entry<String, String>> historialDecisiones;
     
@@ -118,8 +122,8 @@ class Compañero extends IAConfig {
 
 class SistemaAmbiente extends IAConfig {
     private double frecuenciaEventos; // eventos/hora
-    private int impactoJugador; // 1-10
-    private Map<String, Double> tiposEvento; // tipo: probabilidad
+    int impactoJugador; // 1-10
+    Map<String, Double> tiposEvento; // tipo: probabilidad
     
     public SistemaAmbiente(String nombre, int dificultad, String comportamiento, 
                           double frecuenciaEventos, int impactoJugador) {
@@ -102,7 +102,7 @@ class IoTAdapter {
     }
 
     private String resourceToTopic(String resource) {
-        return resource.strip("/").replace("_", "/");
+        return resource.replaceAll("^/+|/+$", "").replace("_", "/");
     }
 
     public Map<String, Object> sendMessage(String destination, Object message) {
@@ -1,40 +1,332 @@
-import java.util.HashMap;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
 
 class FontProperties {
+    private final String family;
+    private final int size;
+    private final String style;
+    private final String color;
+
+    public FontProperties(String family, int size, String style, String color) {
+        this.family = family;
+        this.size = size;
+        this.style = style;
+        this.color = color;
+        System.out.println("Creando nueva configuración de fuente: " + family + ", " + size + "pt, " + style + ", " + color);
+    }
+
+    public String getFamily() {
+        return family;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getStyle() {
+        return style;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public String getDescription() {
+        return family + " " + size + "pt " + style + ", color " + color;
+    }
+
+    public void render(char character, int x, int y) {
+        System.out.println("Renderizando '" + character + "' en (" + x + ", " + y + ") con fuente " + getDescription());
+    }
+
+    public void renderRun(char[] text, int offset, int length, int x, int y, RenderTarget target) {
+        target.drawRun(this, text, offset, length, x, y);
+    }
+}
+
+interface RenderTarget {
+    void drawRun(FontProperties font, char[] text, int offset, int length, int x, int y);
+
+    void flush();
+}
+
+// Acumula las líneas en un buffer y las vuelca al stream en bloques, no una por glifo.
+class ConsoleRenderTarget implements RenderTarget {
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    private final PrintStream out;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD * 2);
+    private final Map<FontProperties, String> descriptions = new IdentityHashMap<>();
+
+    public ConsoleRenderTarget(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void drawRun(FontProperties font, char[] text, int offset, int length, int x, int y) {
+        buffer.append("Renderizando '").append(text, offset, length)
+            .append("' desde (").append(x).append(", ").append(y).append(") con fuente ")
+            .append(descriptions.computeIfAbsent(font, FontProperties::getDescription))
+            .append('\n');
+        if (buffer.length() >= FLUSH_THRESHOLD) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        out.append(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+}
+
+// Clave compuesta de la fábrica; el hash se calcula una vez al fijar los campos.
+// Cada hilo reutiliza una instancia mutable para las búsquedas, así un acierto no reserva memoria.
+final class FontKey {
     private String family;
     private int size;
     private String style;
     private String color;
+    private int hash;
 
-    public FontProperties(String family, int size, String style, String color) {
+    FontKey() {
+    }
+
+    FontKey(String family, int size, String style, String color) {
+        set(family, size, style, color);
+    }
+
+    FontKey set(String family, int size, String style, String color) {
         this.family = family;
         this.size = size;
         this.style = style;
         this.color = color;
-        System.out.println("Creando nueva configuración de fuente: " + family + ", " + size + "pt, " + style + ", " + color);
+        this.hash = ((Objects.hashCode(family) * 31 + size) * 31 + Objects.hashCode(style)) * 31 + Objects.hashCode(color);
+        return this;
     }
 
-    public void render(char character, int x, int y) {
-        System.out.println("Renderizando '" + character + "' en (" + x + ", " + y + ") con fuente " + family + " " + size + "pt " + style + ", color " + color);
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof FontKey)) {
+            return false;
+        }
+        FontKey key = (FontKey) other;
+        return hash == key.hash && size == key.size && Objects.equals(family, key.family)
+            && Objects.equals(style, key.style) && Objects.equals(color, key.color);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
+
+class FontCacheStats {
+    private final long hits;
+    private final long misses;
+    private final long fontsCreated;
+    private final long evictions;
+    private final long collected;
+    private final int size;
+
+    FontCacheStats(long hits, long misses, long fontsCreated, long evictions, long collected, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.fontsCreated = fontsCreated;
+        this.evictions = evictions;
+        this.collected = collected;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getFontsCreated() {
+        return fontsCreated;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getCollected() {
+        return collected;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("aciertos=%d, fallos=%d, creadas=%d, desalojadas=%d, recolectadas=%d, en caché=%d",
+            hits, misses, fontsCreated, evictions, collected, size);
     }
 }
 
+// Caché acotada de flyweights con desalojo LRU aproximado por reloj (segunda oportunidad):
+// un acierto solo marca la entrada, sin bloqueos; al desalojar se recorre la cola en orden
+// de alta y una entrada marcada se desmarca y vuelve al final en lugar de salir. Cada
+// desalojo cuesta O(1) amortizado. Opcionalmente, valores débiles que el GC puede recoger
+// cuando ningún documento los usa. Los documentos guardan sus propias referencias a las fuentes,
+// así que desalojar una entrada nunca invalida glifos existentes. Tras un desalojo un documento
+// puede tener dos instancias iguales de una fuente en su tabla; por eso open la restaura por posición.
 class FontFactory {
-    private static Map<String, FontProperties> fonts = new HashMap<>();
+    private static final ConcurrentMap<FontKey, FontEntry> fonts = new ConcurrentHashMap<>();
+    private static final ThreadLocal<FontKey> lookupKey = ThreadLocal.withInitial(FontKey::new);
+    private static final ReferenceQueue<FontProperties> collectedFonts = new ReferenceQueue<>();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder created = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+    private static final LongAdder collected = new LongAdder();
+    // Cola del reloj y desalojo, siempre con este cerrojo; solo se toma en los fallos.
+    private static final Object evictionLock = new Object();
+    private static final ArrayDeque<FontEntry> clock = new ArrayDeque<>();
+    private static volatile int maximumSize = Integer.MAX_VALUE;
+    private static volatile boolean weakValues;
+
+    private static final class FontEntry extends WeakReference<FontProperties> {
+        final FontKey key;
+        final FontProperties strongFont;
+        volatile boolean referenced;
+
+        FontEntry(FontKey key, FontProperties font, boolean weak) {
+            super(font, collectedFonts);
+            this.key = key;
+            this.strongFont = weak ? null : font;
+        }
+
+        FontProperties font() {
+            return strongFont != null ? strongFont : get();
+        }
+    }
+
+    public static void configure(int maximumSize, boolean weakValues) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("El tamaño máximo debe ser positivo: " + maximumSize);
+        }
+        FontFactory.maximumSize = maximumSize;
+        FontFactory.weakValues = weakValues;
+        synchronized (evictionLock) {
+            evictIfNeeded();
+        }
+    }
 
     public static FontProperties getFont(String family, int size, String style, String color) {
-        String key = family + "-" + size + "-" + style + "-" + color;
+        FontEntry entry = fonts.get(lookupKey.get().set(family, size, style, color));
+        if (entry != null) {
+            FontProperties font = entry.font();
+            if (font != null) {
+                if (!entry.referenced) {
+                    entry.referenced = true;
+                }
+                hits.increment();
+                return font;
+            }
+        }
 
-        if (!fonts.containsKey(key)) {
-            fonts.put(key, new FontProperties(family, size, style, color));
+        misses.increment();
+        FontProperties[] result = new FontProperties[1];
+        FontEntry[] added = new FontEntry[1];
+        fonts.compute(new FontKey(family, size, style, color), (key, existing) -> {
+            FontProperties font = existing == null ? null : existing.font();
+            if (font == null) {
+                font = new FontProperties(family, size, style, color);
+                created.increment();
+                existing = new FontEntry(key, font, weakValues);
+                added[0] = existing;
+            }
+            result[0] = font;
+            return existing;
+        });
+        expungeCollected();
+        if (added[0] != null) {
+            synchronized (evictionLock) {
+                clock.add(added[0]);
+                // Las entradas recolectadas o reemplazadas siguen en la cola hasta aquí
+                if (clock.size() > 2 * fonts.size() + 16) {
+                    clock.removeIf(queued -> fonts.get(queued.key) != queued);
+                }
+                evictIfNeeded();
+            }
         }
+        return result[0];
+    }
 
-        return fonts.get(key);
+    private static void expungeCollected() {
+        Object reference;
+        while ((reference = collectedFonts.poll()) != null) {
+            FontEntry entry = (FontEntry) reference;
+            if (fonts.remove(entry.key, entry)) {
+                collected.increment();
+            }
+        }
     }
 
-    public static int getTotalFontsCreated() {
-        return fonts.size();
+    // Se llama con evictionLock tomado, así dos fallos concurrentes no desalojan de más.
+    // Tras una vuelta completa de segundas oportunidades se desaloja aunque la entrada
+    // esté marcada, para que los aciertos continuos no alarguen el recorrido.
+    private static void evictIfNeeded() {
+        int secondChances = clock.size();
+        while (fonts.size() > maximumSize && !clock.isEmpty()) {
+            FontEntry entry = clock.poll();
+            if (fonts.get(entry.key) != entry) {
+                continue;
+            }
+            if (entry.referenced && secondChances-- > 0) {
+                entry.referenced = false;
+                clock.add(entry);
+            } else if (fonts.remove(entry.key, entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public static FontCacheStats getStats() {
+        expungeCollected();
+        return new FontCacheStats(hits.sum(), misses.sum(), created.sum(), evictions.sum(), collected.sum(), fonts.size());
     }
 }
 
@@ -56,22 +348,452 @@ class Character {
     }
 }
 
+interface GlyphStore {
+    void add(char character, int x, int y, short font);
+
+    int size();
+
+    char charAt(int index);
+
+    int x(int index);
+
+    int y(int index);
+
+    short fontIndex(int index);
+}
+
+// Estado extrínseco por columnas (char, x, y, índice de fuente): unos 12 bytes por glifo.
+// Crece por bloques de tamaño fijo, así que añadir nunca copia los glifos existentes.
+class ChunkedGlyphStore implements GlyphStore {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private char[][] chars = new char[0][];
+    private int[][] xs = new int[0][];
+    private int[][] ys = new int[0][];
+    private short[][] fonts = new short[0][];
+    private int size;
+
+    @Override
+    public void add(char character, int x, int y, short font) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chars.length) {
+            grow();
+        }
+        int offset = size & CHUNK_MASK;
+        chars[chunk][offset] = character;
+        xs[chunk][offset] = x;
+        ys[chunk][offset] = y;
+        fonts[chunk][offset] = font;
+        size++;
+    }
+
+    private void grow() {
+        int chunks = chars.length + 1;
+        chars = Arrays.copyOf(chars, chunks);
+        xs = Arrays.copyOf(xs, chunks);
+        ys = Arrays.copyOf(ys, chunks);
+        fonts = Arrays.copyOf(fonts, chunks);
+        chars[chunks - 1] = new char[CHUNK_SIZE];
+        xs[chunks - 1] = new int[CHUNK_SIZE];
+        ys[chunks - 1] = new int[CHUNK_SIZE];
+        fonts[chunks - 1] = new short[CHUNK_SIZE];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int x(int index) {
+        return xs[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    public int y(int index) {
+        return ys[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    @Override
+    public short fontIndex(int index) {
+        return fonts[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+}
+
+// Lee los glifos directamente de un archivo mapeado en memoria, sin materializarlos.
+// Cada registro ocupa 12 bytes: char, índice de fuente (short), x e y (int).
+class MappedGlyphStore implements GlyphStore {
+    static final int RECORD_BYTES = 12;
+    private static final int SEGMENT_BITS = 26;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+    private final MappedByteBuffer[] segments;
+    private final int size;
+
+    MappedGlyphStore(FileChannel channel, long offset, int size) throws IOException {
+        this.size = size;
+        int segmentCount = (int) (((long) size + SEGMENT_MASK) >>> SEGMENT_BITS);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long first = (long) i << SEGMENT_BITS;
+            long glyphs = Math.min(1L << SEGMENT_BITS, size - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + first * RECORD_BYTES, glyphs * RECORD_BYTES);
+        }
+    }
+
+    @Override
+    public void add(char character, int x, int y, short font) {
+        throw new UnsupportedOperationException("Un documento mapeado desde disco es de solo lectura");
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return segments[index >>> SEGMENT_BITS].getChar((index & SEGMENT_MASK) * RECORD_BYTES);
+    }
+
+    @Override
+    public short fontIndex(int index) {
+        return segments[index >>> SEGMENT_BITS].getShort((index & SEGMENT_MASK) * RECORD_BYTES + 2);
+    }
+
+    @Override
+    public int x(int index) {
+        return segments[index >>> SEGMENT_BITS].getInt((index & SEGMENT_MASK) * RECORD_BYTES + 4);
+    }
+
+    @Override
+    public int y(int index) {
+        return segments[index >>> SEGMENT_BITS].getInt((index & SEGMENT_MASK) * RECORD_BYTES + 8);
+    }
+}
+
+// Guarda los tramos en memoria para volcarlos después, en orden, sobre el destino real.
+class RunBuffer implements RenderTarget {
+    private final List<FontProperties> fonts = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private int[] positions = new int[32];
+
+    @Override
+    public void drawRun(FontProperties font, char[] text, int offset, int length, int x, int y) {
+        int run = fonts.size();
+        if (run * 2 + 1 >= positions.length) {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+        }
+        fonts.add(font);
+        texts.add(new String(text, offset, length));
+        positions[run * 2] = x;
+        positions[run * 2 + 1] = y;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    public void replayTo(RenderTarget target) {
+        for (int run = 0; run < fonts.size(); run++) {
+            char[] text = texts.get(run).toCharArray();
+            target.drawRun(fonts.get(run), text, 0, text.length, positions[run * 2], positions[run * 2 + 1]);
+        }
+    }
+}
+
+// Índice espacial por filas: para cada coordenada y, los glifos de esa línea en orden de inserción.
+class GlyphIndex {
+    private final NavigableMap<Integer, RowBucket> rows = new TreeMap<>();
+
+    static class RowBucket {
+        private int[] glyphs = new int[16];
+        private int size;
+
+        void add(int glyph) {
+            if (size == glyphs.length) {
+                glyphs = Arrays.copyOf(glyphs, size * 2);
+            }
+            glyphs[size++] = glyph;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int position) {
+            return glyphs[position];
+        }
+    }
+
+    public void add(int glyph, int y) {
+        rows.computeIfAbsent(y, row -> new RowBucket()).add(glyph);
+    }
+
+    public NavigableMap<Integer, RowBucket> rowsBetween(int y0, int y1) {
+        return rows.subMap(y0, true, y1, true);
+    }
+}
+
 class TextDocument {
-    private java.util.List<Character> characters = new java.util.ArrayList<>();
+    private static final int MIN_PARALLEL_REGION = 1 << 16;
+    private static final int MAGIC = 0x46574454;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final List<FontProperties> fontTable = new ArrayList<>();
+    private final Map<FontProperties, Short> fontIndexes = new IdentityHashMap<>();
+    private final GlyphStore glyphs;
+    private FontProperties lastFont;
+    private short lastFontIndex;
+    private GlyphIndex index;
+
+    public TextDocument() {
+        this.glyphs = new ChunkedGlyphStore();
+    }
+
+    private TextDocument(GlyphStore glyphs) {
+        this.glyphs = glyphs;
+    }
+
+    // Formato: cabecera (magic, versión, bytes de la tabla de fuentes, número de glifos),
+    // tabla de fuentes y registros de glifos de tamaño fijo.
+    public void save(Path path) throws IOException {
+        ByteArrayOutputStream fontBytes = new ByteArrayOutputStream();
+        DataOutputStream fontOut = new DataOutputStream(fontBytes);
+        fontOut.writeInt(fontTable.size());
+        for (FontProperties font : fontTable) {
+            fontOut.writeUTF(font.getFamily());
+            fontOut.writeInt(font.getSize());
+            fontOut.writeUTF(font.getStyle());
+            fontOut.writeUTF(font.getColor());
+        }
+        fontOut.flush();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(fontBytes.size());
+            out.writeInt(glyphs.size());
+            fontBytes.writeTo(out);
+            int size = glyphs.size();
+            for (int i = 0; i < size; i++) {
+                out.writeChar(glyphs.charAt(i));
+                out.writeShort(glyphs.fontIndex(i));
+                out.writeInt(glyphs.x(i));
+                out.writeInt(glyphs.y(i));
+            }
+        }
+    }
+
+    public static TextDocument open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(channel, header);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Formato de documento no reconocido: " + path);
+            }
+            int fontTableBytes = header.getInt(8);
+            int glyphCount = header.getInt(12);
+            long glyphOffset = HEADER_BYTES + (long) fontTableBytes;
+            if (fontTableBytes < 0 || glyphCount < 0
+                    || channel.size() < glyphOffset + (long) glyphCount * MappedGlyphStore.RECORD_BYTES) {
+                throw new IOException("Documento truncado o corrupto: " + path);
+            }
+
+            ByteBuffer fontBytes = ByteBuffer.allocate(fontTableBytes);
+            readFully(channel, fontBytes);
+            TextDocument document = new TextDocument(new MappedGlyphStore(channel, glyphOffset, glyphCount));
+            DataInputStream fontIn = new DataInputStream(new ByteArrayInputStream(fontBytes.array()));
+            int fontCount = fontIn.readInt();
+            for (int i = 0; i < fontCount; i++) {
+                String family = fontIn.readUTF();
+                int size = fontIn.readInt();
+                String style = fontIn.readUTF();
+                String color = fontIn.readUTF();
+                document.appendFont(FontFactory.getFont(family, size, style, color));
+            }
+            return document;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Fin de archivo inesperado");
+            }
+        }
+    }
 
     public void addCharacter(char character, FontProperties font, int x, int y) {
-        characters.add(new Character(character, font, x, y));
+        glyphs.add(character, x, y, indexOf(font));
+        if (index != null) {
+            index.add(glyphs.size() - 1, y);
+        }
+    }
+
+    // El índice se construye con la primera consulta por región y luego se mantiene al añadir.
+    private GlyphIndex index() {
+        if (index == null) {
+            GlyphIndex built = new GlyphIndex();
+            int size = glyphs.size();
+            for (int i = 0; i < size; i++) {
+                built.add(i, glyphs.y(i));
+            }
+            index = built;
+        }
+        return index;
+    }
+
+    // Restaura una entrada de la tabla en su posición guardada, sin deduplicar: los glifos
+    // del archivo apuntan a posiciones, aunque dos entradas resuelvan a la misma fuente.
+    private void appendFont(FontProperties font) {
+        if (fontTable.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("El documento supera el máximo de " + (Short.MAX_VALUE + 1) + " fuentes distintas");
+        }
+        fontIndexes.putIfAbsent(font, (short) fontTable.size());
+        fontTable.add(font);
+    }
+
+    private short indexOf(FontProperties font) {
+        if (font == lastFont) {
+            return lastFontIndex;
+        }
+        Short index = fontIndexes.get(font);
+        if (index == null) {
+            if (fontTable.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("El documento supera el máximo de " + (Short.MAX_VALUE + 1) + " fuentes distintas");
+            }
+            index = (short) fontTable.size();
+            fontTable.add(font);
+            fontIndexes.put(font, index);
+        }
+        lastFont = font;
+        lastFontIndex = index;
+        return index;
+    }
+
+    public Character getCharacter(int index) {
+        if (index < 0 || index >= glyphs.size()) {
+            throw new IndexOutOfBoundsException("Índice de carácter fuera de rango: " + index);
+        }
+        return new Character(glyphs.charAt(index), fontTable.get(glyphs.fontIndex(index)), glyphs.x(index), glyphs.y(index));
     }
 
     public void renderDocument() {
         System.out.println("\n=== RENDERIZANDO DOCUMENTO ===");
-        for (Character character : characters) {
-            character.draw();
+        renderDocument(new ConsoleRenderTarget(System.out));
+    }
+
+    // Agrupa los glifos consecutivos con la misma fuente y en la misma línea en un
+    // único tramo, de modo que el coste depende de los cambios de fuente y no de los caracteres.
+    public void renderDocument(RenderTarget target) {
+        renderRange(0, glyphs.size(), target);
+        target.flush();
+    }
+
+    private void renderRange(int from, int to, RenderTarget target) {
+        RunBuilder runs = new RunBuilder(target);
+        for (int i = from; i < to; i++) {
+            runs.append(i);
+        }
+        runs.breakRun();
+    }
+
+    public void renderRegion(int x0, int y0, int x1, int y1, RenderTarget target) {
+        RunBuilder runs = new RunBuilder(target);
+        for (GlyphIndex.RowBucket row : index().rowsBetween(y0, y1).values()) {
+            for (int position = 0; position < row.size(); position++) {
+                int glyph = row.get(position);
+                int x = glyphs.x(glyph);
+                if (x >= x0 && x <= x1) {
+                    runs.append(glyph);
+                } else {
+                    runs.breakRun();
+                }
+            }
+            runs.breakRun();
+        }
+        target.flush();
+    }
+
+    // Divide el documento en regiones contiguas que empiezan en un cambio de línea, las
+    // recorre en paralelo y vuelca los tramos de cada región en orden sobre el destino.
+    public void renderDocumentParallel(RenderTarget target, ForkJoinPool pool) {
+        int size = glyphs.size();
+        int regions = Math.max(1, Math.min(pool.getParallelism() * 4, size / MIN_PARALLEL_REGION));
+        List<ForkJoinTask<RunBuffer>> tasks = new ArrayList<>(regions);
+        int from = 0;
+        for (int region = 1; region <= regions && from < size; region++) {
+            int to = region == regions ? size : lineStartAtOrAfter((int) ((long) size * region / regions));
+            int start = from;
+            tasks.add(pool.submit(() -> {
+                RunBuffer buffer = new RunBuffer();
+                renderRange(start, to, buffer);
+                return buffer;
+            }));
+            from = to;
+        }
+        for (ForkJoinTask<RunBuffer> task : tasks) {
+            task.join().replayTo(target);
+        }
+        target.flush();
+    }
+
+    private int lineStartAtOrAfter(int glyph) {
+        int size = glyphs.size();
+        while (glyph > 0 && glyph < size && glyphs.y(glyph) == glyphs.y(glyph - 1)) {
+            glyph++;
+        }
+        return glyph;
+    }
+
+    private class RunBuilder {
+        private final RenderTarget target;
+        private char[] run = new char[64];
+        private int length;
+        private short runFont;
+        private int runX;
+        private int runY;
+
+        RunBuilder(RenderTarget target) {
+            this.target = target;
+        }
+
+        void append(int glyph) {
+            short font = glyphs.fontIndex(glyph);
+            int y = glyphs.y(glyph);
+            if (length > 0 && (font != runFont || y != runY)) {
+                breakRun();
+            }
+            if (length == 0) {
+                runFont = font;
+                runX = glyphs.x(glyph);
+                runY = y;
+            }
+            if (length == run.length) {
+                run = Arrays.copyOf(run, length * 2);
+            }
+            run[length++] = glyphs.charAt(glyph);
+        }
+
+        void breakRun() {
+            if (length > 0) {
+                fontTable.get(runFont).renderRun(run, 0, length, runX, runY, target);
+                length = 0;
+            }
         }
     }
 
     public int getTotalCharacters() {
-        return characters.size();
+        return glyphs.size();
     }
 }
 
@@ -115,9 +837,26 @@ public class FlyweightPatternDemo {
 
         document.renderDocument();
 
+        System.out.println("\n=== RENDERIZANDO REGIÓN (0, 35) - (120, 65) ===");
+        document.renderRegion(0, 35, 120, 65, new ConsoleRenderTarget(System.out));
+
         System.out.println("\n=== ESTADÍSTICAS DE MEMORIA ===");
         System.out.println("Número total de caracteres: " + document.getTotalCharacters());
-        System.out.println("Número de objetos fuente creados: " + FontFactory.getTotalFontsCreated());
-        System.out.printf("Ratio de compartición: %.2f caracteres por fuente\n", (double) document.getTotalCharacters() / FontFactory.getTotalFontsCreated());
+        FontCacheStats stats = FontFactory.getStats();
+        System.out.println("Número de objetos fuente creados: " + stats.getFontsCreated());
+        System.out.printf("Ratio de compartición: %.2f caracteres por fuente\n", (double) document.getTotalCharacters() / stats.getFontsCreated());
+        System.out.println("Caché de fuentes: " + stats);
+
+        System.out.println("\n=== PERSISTENCIA MAPEADA EN MEMORIA ===");
+        try {
+            Path file = Files.createTempFile("documento", ".fwdt");
+            document.save(file);
+            TextDocument reopened = TextDocument.open(file);
+            System.out.println("Documento guardado en " + Files.size(file) + " bytes y reabierto con "
+                + reopened.getTotalCharacters() + " caracteres");
+            Files.delete(file);
+        } catch (IOException e) {
+            System.out.println("Error al persistir el documento: " + e.getMessage());
+        }
     }
 }